@@ -0,0 +1,245 @@
+package graphql.benchmark;
+
+import graphql.ExecutionInput;
+import graphql.TypeResolutionEnvironment;
+import graphql.language.Document;
+import graphql.parser.Parser;
+import graphql.schema.DataFetcher;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.PropertyDataFetcher;
+import graphql.schema.TypeResolver;
+import graphql.schema.idl.FieldWiringEnvironment;
+import graphql.schema.idl.InterfaceWiringEnvironment;
+import graphql.schema.idl.RuntimeWiring;
+import graphql.schema.idl.SchemaGenerator;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.UnionWiringEnvironment;
+import graphql.schema.idl.WiringFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A schema, a query and the in-memory data to run it against. All fields are fetched with a {@link PropertyDataFetcher}
+ * (like the MockedWiringFactory in the tests) so the benchmarks measure the engines and not the fetchers.
+ */
+public class BenchmarkQuery {
+
+    private static final String TYPE_KEY = "__type";
+
+    private final GraphQLSchema schema;
+    private final Document document;
+    private final Map<String, Object> root;
+
+    private BenchmarkQuery(String sdl, String query, Map<String, Object> root) {
+        this.schema = createSchema(sdl);
+        this.document = new Parser().parseDocument(query);
+        this.root = root;
+    }
+
+    public GraphQLSchema getSchema() {
+        return schema;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public ExecutionInput newExecutionInput() {
+        return ExecutionInput.newExecutionInput()
+                .root(root)
+                .build();
+    }
+
+    public static BenchmarkQuery forShape(String shape) {
+        switch (shape) {
+            case "wide":
+                return wide(20, 50);
+            case "deep":
+                return deep(10, 3);
+            case "list":
+                return listHeavy(1000, 5);
+            case "union":
+                return unionHeavy(1000);
+            default:
+                throw new IllegalArgumentException("unknown shape " + shape);
+        }
+    }
+
+    /**
+     * a list of objects with many scalar fields
+     */
+    static BenchmarkQuery wide(int objectCount, int fieldCount) {
+        StringBuilder sdl = new StringBuilder("type Query { wide: [Wide] } type Wide {");
+        StringBuilder query = new StringBuilder("{ wide {");
+        for (int i = 0; i < fieldCount; i++) {
+            sdl.append(" f").append(i).append(": String");
+            query.append(" f").append(i);
+        }
+        sdl.append(" }");
+        query.append(" } }");
+
+        List<Object> wide = new ArrayList<>();
+        for (int i = 0; i < objectCount; i++) {
+            Map<String, Object> object = new LinkedHashMap<>();
+            for (int j = 0; j < fieldCount; j++) {
+                object.put("f" + j, "value" + i + "_" + j);
+            }
+            wide.add(object);
+        }
+        return new BenchmarkQuery(sdl.toString(), query.toString(), singletonMap("wide", wide));
+    }
+
+    /**
+     * a tree of nested objects: every level is one more level of batching
+     */
+    static BenchmarkQuery deep(int depth, int childrenPerNode) {
+        String sdl = "type Query { node: Node } type Node { id: ID name: String children: [Node] }";
+        StringBuilder query = new StringBuilder("{ node {");
+        for (int i = 0; i < depth; i++) {
+            query.append(" id name children {");
+        }
+        query.append(" id name");
+        for (int i = 0; i <= depth; i++) {
+            query.append(" }");
+        }
+        query.append(" }");
+        return new BenchmarkQuery(sdl, query.toString(), singletonMap("node", deepNode("n", depth, childrenPerNode)));
+    }
+
+    private static Map<String, Object> deepNode(String id, int depth, int childrenPerNode) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("id", id);
+        node.put("name", "name " + id);
+        List<Object> children = new ArrayList<>();
+        if (depth > 0) {
+            // only the first child is nested further to keep the result size linear in the depth
+            for (int i = 0; i < childrenPerNode; i++) {
+                children.add(deepNode(id + "_" + i, i == 0 ? depth - 1 : 0, childrenPerNode));
+            }
+        }
+        node.put("children", children);
+        return node;
+    }
+
+    /**
+     * a big list of objects which contain lists again
+     */
+    static BenchmarkQuery listHeavy(int itemCount, int tagsPerItem) {
+        String sdl = "type Query { items: [Item] } type Item { id: ID name: String tags: [Tag] } type Tag { id: ID name: String }";
+        String query = "{ items { id name tags { id name } } }";
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", "item" + i);
+            item.put("name", "name " + i);
+            List<Object> tags = new ArrayList<>();
+            for (int j = 0; j < tagsPerItem; j++) {
+                Map<String, Object> tag = new LinkedHashMap<>();
+                tag.put("id", "tag" + j);
+                tag.put("name", "tag name " + j);
+                tags.add(tag);
+            }
+            item.put("tags", tags);
+            items.add(item);
+        }
+        return new BenchmarkQuery(sdl, query, singletonMap("items", items));
+    }
+
+    /**
+     * a big list of union values: every element needs type resolution and a different sub selection
+     */
+    static BenchmarkQuery unionHeavy(int resultCount) {
+        String sdl = "type Query { search: [SearchResult] } union SearchResult = Person | Company | Product " +
+                "type Person { id: ID name: String age: Int } " +
+                "type Company { id: ID name: String employees: Int } " +
+                "type Product { id: ID title: String price: Float }";
+        String query = "{ search { " +
+                "... on Person { id name age } " +
+                "... on Company { id name employees } " +
+                "... on Product { id title price } } }";
+        List<Object> search = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("id", "id" + i);
+            switch (i % 3) {
+                case 0:
+                    result.put(TYPE_KEY, "Person");
+                    result.put("name", "person " + i);
+                    result.put("age", i % 100);
+                    break;
+                case 1:
+                    result.put(TYPE_KEY, "Company");
+                    result.put("name", "company " + i);
+                    result.put("employees", i);
+                    break;
+                default:
+                    result.put(TYPE_KEY, "Product");
+                    result.put("title", "product " + i);
+                    result.put("price", i * 1.5d);
+            }
+            search.add(result);
+        }
+        return new BenchmarkQuery(sdl, query, singletonMap("search", search));
+    }
+
+    private static Map<String, Object> singletonMap(String key, Object value) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(key, value);
+        return result;
+    }
+
+    private static GraphQLSchema createSchema(String sdl) {
+        TypeDefinitionRegistry registry = new SchemaParser().parse(sdl);
+        RuntimeWiring runtimeWiring = RuntimeWiring.newRuntimeWiring()
+                .wiringFactory(new InMemoryWiringFactory())
+                .build();
+        SchemaGenerator.Options options = SchemaGenerator.Options.defaultOptions();
+        return new SchemaGenerator().makeExecutableSchema(options, registry, runtimeWiring);
+    }
+
+    private static class InMemoryWiringFactory implements WiringFactory {
+
+        private final TypeResolver typeResolver = new TypeResolver() {
+            @Override
+            public GraphQLObjectType getType(TypeResolutionEnvironment env) {
+                Map<String, Object> object = env.getObject();
+                return env.getSchema().getObjectType((String) object.get(TYPE_KEY));
+            }
+        };
+
+        @Override
+        public boolean providesTypeResolver(InterfaceWiringEnvironment environment) {
+            return true;
+        }
+
+        @Override
+        public TypeResolver getTypeResolver(InterfaceWiringEnvironment environment) {
+            return typeResolver;
+        }
+
+        @Override
+        public boolean providesTypeResolver(UnionWiringEnvironment environment) {
+            return true;
+        }
+
+        @Override
+        public TypeResolver getTypeResolver(UnionWiringEnvironment environment) {
+            return typeResolver;
+        }
+
+        @Override
+        public boolean providesDataFetcher(FieldWiringEnvironment environment) {
+            return true;
+        }
+
+        @Override
+        public DataFetcher getDataFetcher(FieldWiringEnvironment environment) {
+            return new PropertyDataFetcher(environment.getFieldDefinition().getName());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package graphql.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.CFExecution;
+import graphql.ExecutionResult;
+import graphql.PreparedOperationCache;
+import graphql.execution.ExecutionId;
+import graphql.old.ReactorExecution;
+import graphql.old.ReactorStreamingExecution;
+import graphql.old.ResultLeaf;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the same query shapes through all engines. Run with {@code ./gradlew jmh}: the gc profiler is configured in
+ * build.gradle so the results contain the allocation rate next to ops/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    @Param({"wide", "deep", "list", "union"})
+    public String shape;
+
+    private BenchmarkQuery query;
+    private PreparedOperationCache preparedOperationCache;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OutputStream discardingOutputStream = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setup() {
+        query = BenchmarkQuery.forShape(shape);
+        preparedOperationCache = new PreparedOperationCache(100);
+    }
+
+    @Benchmark
+    public ExecutionResult cfExecution() {
+        CFExecution execution = new CFExecution();
+        return execution.execute(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput()).join();
+    }
+
+    @Benchmark
+    public ExecutionResult cfExecutionWithPreparedOperationCache() {
+        CFExecution execution = CFExecution.newCFExecution().preparedOperationCache(preparedOperationCache).build();
+        return execution.execute(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput()).join();
+    }
+
+    /**
+     * the json of a response built the usual way: maps and lists first, then serialized
+     */
+    @Benchmark
+    public void cfExecutionToDataAndJson() throws IOException {
+        CFExecution execution = new CFExecution();
+        ExecutionResult result = execution.execute(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput()).join();
+        objectMapper.writeValue(discardingOutputStream, result.toSpecification());
+    }
+
+    /**
+     * the json of a response written straight from the result tree
+     */
+    @Benchmark
+    public void cfExecutionWriteJson() {
+        CFExecution execution = new CFExecution();
+        execution.executeAndWrite(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput(), discardingOutputStream).join();
+    }
+
+    @Benchmark
+    public ExecutionResult reactorExecution() {
+        ReactorExecution execution = new ReactorExecution();
+        return execution.execute(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput()).block();
+    }
+
+    @Benchmark
+    public List<ResultLeaf> reactorStreamingExecution() {
+        ReactorStreamingExecution execution = new ReactorStreamingExecution();
+        return execution.execute(query.getDocument(), query.getSchema(), ExecutionId.generate(), query.newExecutionInput())
+                .collectList()
+                .block();
+    }
+}
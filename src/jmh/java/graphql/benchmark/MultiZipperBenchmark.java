@@ -0,0 +1,107 @@
+package graphql.benchmark;
+
+import graphql.FetchedValueAnalysis;
+import graphql.Scalars;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStepInfo;
+import graphql.result.ExecutionResultNode;
+import graphql.result.ExecutionResultNodeZipper;
+import graphql.result.ListExecutionResultNode;
+import graphql.result.MultiZipper;
+import graphql.result.ObjectExecutionResultNode;
+import graphql.result.ResultNodesUtil;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLOutputType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static graphql.FetchedValueAnalysis.FetchedValueType.LIST;
+import static graphql.FetchedValueAnalysis.FetchedValueType.OBJECT;
+import static graphql.FetchedValueAnalysis.newFetchedValueAnalysis;
+import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode;
+import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode;
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition;
+import static graphql.schema.GraphQLObjectType.newObject;
+
+/**
+ * Measures {@link MultiZipper#toRootNode()} for a level of resolved nodes: {@code items} is a list of objects
+ * which have a list of {@code children}, every child is replaced by a resolved node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MultiZipperBenchmark {
+
+    private static final int CHILDREN_PER_ITEM = 100;
+
+    @Param({"10000", "100000"})
+    public int zipperCount;
+
+    private MultiZipper multiZipper;
+
+    @Setup
+    public void setup() {
+        GraphQLObjectType fooType = newObject()
+                .name("Foo")
+                .field(newFieldDefinition().name("id").type(Scalars.GraphQLString))
+                .build();
+
+        List<ExecutionResultNode> items = new ArrayList<>();
+        for (int i = 0; i < zipperCount / CHILDREN_PER_ITEM; i++) {
+            List<ExecutionResultNode> children = new ArrayList<>();
+            for (int j = 0; j < CHILDREN_PER_ITEM; j++) {
+                children.add(new UnresolvedObjectResultNode(analysis(OBJECT, fooType)));
+            }
+            Map<String, ExecutionResultNode> itemChildren = new LinkedHashMap<>();
+            itemChildren.put("children", new ListExecutionResultNode(analysis(LIST, new GraphQLList(fooType)), children));
+            items.add(new ObjectExecutionResultNode(analysis(OBJECT, fooType), itemChildren));
+        }
+        Map<String, ExecutionResultNode> rootChildren = new LinkedHashMap<>();
+        rootChildren.put("items", new ListExecutionResultNode(analysis(LIST, new GraphQLList(fooType)), items));
+        RootExecutionResultNode root = new RootExecutionResultNode(rootChildren);
+
+        MultiZipper unresolvedNodes = ResultNodesUtil.getUnresolvedNodes(root);
+        List<ExecutionResultNodeZipper> resolvedNodes = new ArrayList<>();
+        for (ExecutionResultNodeZipper zipper : unresolvedNodes.getZippers()) {
+            UnresolvedObjectResultNode unresolvedNode = (UnresolvedObjectResultNode) zipper.getCurNode();
+            resolvedNodes.add(zipper.withNode(unresolvedNode.withChildren(Collections.emptyMap())));
+        }
+        multiZipper = unresolvedNodes.withZippers(resolvedNodes);
+    }
+
+    private static FetchedValueAnalysis analysis(FetchedValueAnalysis.FetchedValueType valueType, GraphQLOutputType type) {
+        ExecutionStepInfo executionStepInfo = ExecutionStepInfo.newExecutionStepInfo()
+                .type(type)
+                .path(ExecutionPath.rootPath())
+                .build();
+        return newFetchedValueAnalysis(valueType)
+                .name("foo")
+                .executionStepInfo(executionStepInfo)
+                .build();
+    }
+
+    @Benchmark
+    public ExecutionResultNode toRootNode() {
+        return multiZipper.toRootNode();
+    }
+}
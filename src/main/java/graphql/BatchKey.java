@@ -0,0 +1,56 @@
+package graphql;
+
+import graphql.language.Field;
+import graphql.schema.GraphQLObjectType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Identifies the objects whose sub selection can be fetched in one batch: they have the same resolved object type
+ * and the same sub selection.
+ *
+ * Keys are interned per operation by {@link BatchKeys}, so equals and hashCode are identity based and O(1).
+ */
+public class BatchKey {
+
+    private final GraphQLObjectType objectType;
+    private final Map<String, List<Field>> fields;
+    private final List<DeferredFields> deferredFields;
+
+    BatchKey(GraphQLObjectType objectType, Map<String, List<Field>> fields) {
+        this(objectType, fields, Collections.emptyList());
+    }
+
+    BatchKey(GraphQLObjectType objectType, Map<String, List<Field>> fields, List<DeferredFields> deferredFields) {
+        this.objectType = objectType;
+        this.fields = fields;
+        this.deferredFields = deferredFields;
+    }
+
+    public GraphQLObjectType getObjectType() {
+        return objectType;
+    }
+
+    public Map<String, List<Field>> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return the {@code @defer} fragments of the sub selection: only collected for incremental executions, the
+     * fields of these fragments are not part of {@link #getFields()}
+     */
+    public List<DeferredFields> getDeferredFields() {
+        return deferredFields;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchKey{" +
+                "objectType=" + objectType.getName() +
+                ", fields=" + fields.keySet() +
+                (deferredFields.isEmpty() ? "" : ", deferredFields=" + deferredFields) +
+                '}';
+    }
+}
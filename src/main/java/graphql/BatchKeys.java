@@ -0,0 +1,133 @@
+package graphql;
+
+import graphql.language.Field;
+import graphql.language.SelectionSet;
+import graphql.schema.GraphQLObjectType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Collects and interns the sub selections ({@link BatchKey}s) of one operation.
+ *
+ * The sub selection of an object only depends on its resolved type and the (merged) fields it was fetched for:
+ * fragments and variables are fixed for the operation. The fields are therefore collected only once for every
+ * such combination, instead of once for every object (e.g. every element of a list). Only then the collected sub
+ * selection is compared, so that objects with the same sub selection reached through different fields (e.g. via
+ * the same fragment) share the key.
+ *
+ * The arguments of the sub fields are a function of their field ASTs and the variables, so keys with the same
+ * field instances also have the same arguments.
+ *
+ * For incremental executions the fields of {@code @defer} fragments are split off the collected sub selection into
+ * {@link BatchKey#getDeferredFields()}.
+ */
+public class BatchKeys {
+
+    private final Map<TypeAndFields, BatchKey> byTypeAndFields = new ConcurrentHashMap<>();
+    private final Map<List<Object>, BatchKey> bySubSelection = new ConcurrentHashMap<>();
+    // null: the deferred fields are part of the sub selection
+    private final DeferredFieldCollector deferredFieldCollector;
+
+    public BatchKeys() {
+        this(null);
+    }
+
+    BatchKeys(DeferredFieldCollector deferredFieldCollector) {
+        this.deferredFieldCollector = deferredFieldCollector;
+    }
+
+    /**
+     * @param collectSubFields only called if the sub selection for objectType and fields is not known yet
+     */
+    public BatchKey getBatchKey(GraphQLObjectType objectType, List<Field> fields, Supplier<Map<String, List<Field>>> collectSubFields) {
+        return byTypeAndFields.computeIfAbsent(new TypeAndFields(objectType, fields), typeAndFields -> {
+            Map<String, List<Field>> subFields = collectSubFields.get();
+            if (deferredFieldCollector == null) {
+                return internBatchKey(objectType, subFields);
+            }
+            List<SelectionSet> selectionSets = fields.stream().map(Field::getSelectionSet).collect(toList());
+            DeferredFieldCollector.Split split = deferredFieldCollector.split(selectionSets, subFields);
+            if (split.getDeferredFields().isEmpty()) {
+                return internBatchKey(objectType, subFields);
+            }
+            // interned before: computeIfAbsent must not change the map it computes for
+            List<DeferredFields> deferredFields = deferredFields(objectType, split);
+            return bySubSelection.computeIfAbsent(Arrays.asList(objectType, split.getFields(), split.getLabels(), split.getDeferredFields()),
+                    key -> new BatchKey(objectType, split.getFields(), deferredFields));
+        });
+    }
+
+    /**
+     * Only used for incremental executions: the root fields are collected per execution or once by the
+     * {@link PreparedOperation}, so they are split but not cached here.
+     *
+     * @return the key with the root fields of the initial result and the deferred root fields
+     */
+    BatchKey splitRootFields(GraphQLObjectType operationRootType, SelectionSet selectionSet, Map<String, List<Field>> rootFields) {
+        if (deferredFieldCollector == null) {
+            return new BatchKey(operationRootType, rootFields);
+        }
+        DeferredFieldCollector.Split split = deferredFieldCollector.split(Collections.singletonList(selectionSet), rootFields);
+        return new BatchKey(operationRootType, split.getFields(), deferredFields(operationRootType, split));
+    }
+
+    /**
+     * @return the deferred fields of the split: their keys are interned too, so the same fragment is batched for all
+     * objects of the type
+     */
+    private List<DeferredFields> deferredFields(GraphQLObjectType objectType, DeferredFieldCollector.Split split) {
+        List<DeferredFields> result = new ArrayList<>();
+        for (int i = 0; i < split.getDeferredFields().size(); i++) {
+            result.add(new DeferredFields(split.getLabels().get(i), internBatchKey(objectType, split.getDeferredFields().get(i))));
+        }
+        return result;
+    }
+
+    private BatchKey internBatchKey(GraphQLObjectType objectType, Map<String, List<Field>> subFields) {
+        return bySubSelection.computeIfAbsent(Arrays.asList(objectType, subFields), key -> new BatchKey(objectType, subFields));
+    }
+
+    // identity based: the field instances are shared for the whole operation
+    private static class TypeAndFields {
+        private final GraphQLObjectType objectType;
+        private final List<Field> fields;
+
+        private TypeAndFields(GraphQLObjectType objectType, List<Field> fields) {
+            this.objectType = objectType;
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            TypeAndFields that = (TypeAndFields) o;
+            if (objectType != that.objectType || fields.size() != that.fields.size()) {
+                return false;
+            }
+            for (int i = 0; i < fields.size(); i++) {
+                if (fields.get(i) != that.fields.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(objectType);
+            for (Field field : fields) {
+                result = 31 * result + System.identityHashCode(field);
+            }
+            return result;
+        }
+    }
+}
@@ -1,6 +1,31 @@
 package graphql;
 
 import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
 
-public interface BatchedDataFetcher<T> extends DataFetcher<T> {
+import java.util.concurrent.CompletionStage;
+
+/**
+ * A data fetcher which fetches a field for all sources of a batch at once.
+ *
+ * It returns a {@link java.util.List} with one value per source (in the order of the sources), a {@link BatchedDataFetcherResult}
+ * or a {@link CompletionStage} of one of them.
+ */
+public interface BatchedDataFetcher extends DataFetcher<Object> {
+
+    Object get(BatchedDataFetchingEnvironment environment);
+
+    /**
+     * Fetches a batch of one: this is only used by execution strategies which don't batch.
+     */
+    @Override
+    default Object get(DataFetchingEnvironment environment) {
+        BatchedDataFetchingEnvironment batchedEnvironment = BatchedDataFetchingEnvironment.newBatchedDataFetchingEnvironment(environment).build();
+        Object result = get(batchedEnvironment);
+        Object source = environment.getSource();
+        if (result instanceof CompletionStage) {
+            return ((CompletionStage<Object>) result).thenApply(batchedResult -> BatchedDataFetcherResult.from(batchedResult).getSingleValue(source));
+        }
+        return BatchedDataFetcherResult.from(result).getSingleValue(source);
+    }
 }
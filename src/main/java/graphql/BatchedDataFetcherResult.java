@@ -0,0 +1,108 @@
+package graphql;
+
+import graphql.execution.DataFetcherResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The result of a {@link BatchedDataFetcher}: one value per source, either in the same order as the sources
+ * or keyed by a key derived from each source.
+ *
+ * A value can be a {@link DataFetcherResult} to report errors for this single value. The errors of the whole
+ * batch are reported once (with the first value).
+ */
+public class BatchedDataFetcherResult {
+
+    // the result of a batched data fetcher returning null: null for every source
+    private static final BatchedDataFetcherResult ALL_NULL = keyed(Collections.emptyMap(), source -> source);
+
+    private final List<?> values;
+    private final Map<?, ?> valuesByKey;
+    private final Function<Object, ?> sourceToKey;
+    private final List<GraphQLError> errors;
+
+    private BatchedDataFetcherResult(List<?> values, Map<?, ?> valuesByKey, Function<Object, ?> sourceToKey, List<GraphQLError> errors) {
+        this.values = values;
+        this.valuesByKey = valuesByKey;
+        this.sourceToKey = sourceToKey;
+        this.errors = Assert.assertNotNull(errors);
+    }
+
+    public static BatchedDataFetcherResult positional(List<?> values) {
+        return positional(values, Collections.emptyList());
+    }
+
+    public static BatchedDataFetcherResult positional(List<?> values, List<GraphQLError> errors) {
+        return new BatchedDataFetcherResult(Assert.assertNotNull(values), null, null, errors);
+    }
+
+    /**
+     * @param valuesByKey the values: sources without a value get null
+     * @param sourceToKey maps each source to the key of its value
+     */
+    public static <K> BatchedDataFetcherResult keyed(Map<K, ?> valuesByKey, Function<Object, K> sourceToKey) {
+        return keyed(valuesByKey, sourceToKey, Collections.emptyList());
+    }
+
+    public static <K> BatchedDataFetcherResult keyed(Map<K, ?> valuesByKey, Function<Object, K> sourceToKey, List<GraphQLError> errors) {
+        return new BatchedDataFetcherResult(null, Assert.assertNotNull(valuesByKey), Assert.assertNotNull(sourceToKey), errors);
+    }
+
+    /**
+     * @param rawResult what a {@link BatchedDataFetcher} returned (or its CompletionStage completed with): a List is
+     *                  treated as positional result, null as null for every source
+     */
+    public static BatchedDataFetcherResult from(Object rawResult) {
+        if (rawResult == null) {
+            return ALL_NULL;
+        }
+        if (rawResult instanceof BatchedDataFetcherResult) {
+            return (BatchedDataFetcherResult) rawResult;
+        }
+        if (rawResult instanceof List) {
+            return positional((List<?>) rawResult);
+        }
+        return Assert.assertShouldNeverHappen("A BatchedDataFetcher must return a List or a BatchedDataFetcherResult but returned %s", rawResult);
+    }
+
+    /**
+     * @return the values in the same order as the sources
+     */
+    public List<Object> getValues(List<Object> sources) {
+        if (values != null) {
+            Assert.assertTrue(values.size() == sources.size(), "Unexpected result size: expected " + sources.size() + " values but got " + values.size());
+            return new ArrayList<>(values);
+        }
+        List<Object> result = new ArrayList<>(sources.size());
+        for (Object source : sources) {
+            result.add(valuesByKey.get(sourceToKey.apply(source)));
+        }
+        return result;
+    }
+
+    /**
+     * @return the value for a batch of one source: the errors of the batch are merged into it
+     */
+    public Object getSingleValue(Object source) {
+        Object value = getValues(Collections.singletonList(source)).get(0);
+        if (errors.isEmpty()) {
+            return value;
+        }
+        List<GraphQLError> allErrors = new ArrayList<>(errors);
+        if (value instanceof DataFetcherResult) {
+            DataFetcherResult<?> dataFetcherResult = (DataFetcherResult<?>) value;
+            allErrors.addAll(dataFetcherResult.getErrors());
+            return new DataFetcherResult<>(dataFetcherResult.getData(), allErrors);
+        }
+        return new DataFetcherResult<>(value, allErrors);
+    }
+
+    public List<GraphQLError> getErrors() {
+        return errors;
+    }
+
+}
@@ -0,0 +1,164 @@
+package graphql;
+
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionPath;
+import graphql.execution.ExecutionStepInfo;
+import graphql.language.Field;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLOutputType;
+import graphql.schema.GraphQLSchema;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Everything a {@link BatchedDataFetcher} needs to fetch one field for many sources at once.
+ * The sources, execution step infos and arguments are positional: the element at index i of each list
+ * belongs to the same source.
+ */
+public class BatchedDataFetchingEnvironment {
+
+    private final List<Object> sources;
+    private final List<ExecutionStepInfo> executionStepInfos;
+    private final List<Map<String, Object>> arguments;
+    private final List<Field> fields;
+    private final GraphQLFieldDefinition fieldDefinition;
+    private final GraphQLOutputType fieldType;
+    private final GraphQLSchema graphQLSchema;
+    private final Object context;
+    private final Object root;
+
+    private BatchedDataFetchingEnvironment(Builder builder) {
+        this.sources = Assert.assertNotNull(builder.sources);
+        this.executionStepInfos = Assert.assertNotNull(builder.executionStepInfos);
+        this.arguments = Assert.assertNotNull(builder.arguments);
+        Assert.assertTrue(sources.size() == executionStepInfos.size() && sources.size() == arguments.size(), "sources, executionStepInfos and arguments must have the same size");
+        this.fields = builder.fields;
+        this.fieldDefinition = builder.fieldDefinition;
+        this.fieldType = builder.fieldType;
+        this.graphQLSchema = builder.graphQLSchema;
+        this.context = builder.context;
+        this.root = builder.root;
+    }
+
+    public int size() {
+        return sources.size();
+    }
+
+    public List<Object> getSources() {
+        return sources;
+    }
+
+    public List<ExecutionStepInfo> getExecutionStepInfos() {
+        return executionStepInfos;
+    }
+
+    public List<ExecutionPath> getPaths() {
+        return executionStepInfos.stream().map(ExecutionStepInfo::getPath).collect(Collectors.toList());
+    }
+
+    public List<Map<String, Object>> getArguments() {
+        return arguments;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    public GraphQLFieldDefinition getFieldDefinition() {
+        return fieldDefinition;
+    }
+
+    public GraphQLOutputType getFieldType() {
+        return fieldType;
+    }
+
+    public GraphQLSchema getGraphQLSchema() {
+        return graphQLSchema;
+    }
+
+    public <T> T getContext() {
+        return (T) context;
+    }
+
+    public <T> T getRoot() {
+        return (T) root;
+    }
+
+    public static Builder newBatchedDataFetchingEnvironment(ExecutionContext executionContext) {
+        Builder builder = new Builder();
+        builder.graphQLSchema = executionContext.getGraphQLSchema();
+        builder.context = executionContext.getContext();
+        builder.root = executionContext.getRoot();
+        return builder;
+    }
+
+    /**
+     * A batch of exactly one source: used when a {@link BatchedDataFetcher} is called as a normal data fetcher.
+     */
+    public static Builder newBatchedDataFetchingEnvironment(DataFetchingEnvironment environment) {
+        Builder builder = new Builder();
+        builder.sources = Collections.singletonList(environment.getSource());
+        builder.executionStepInfos = Collections.singletonList(environment.getExecutionStepInfo());
+        builder.arguments = Collections.singletonList(environment.getArguments());
+        builder.fields = environment.getFields();
+        builder.fieldDefinition = environment.getFieldDefinition();
+        builder.fieldType = environment.getFieldType();
+        builder.graphQLSchema = environment.getGraphQLSchema();
+        builder.context = environment.getContext();
+        builder.root = environment.getRoot();
+        return builder;
+    }
+
+    public static final class Builder {
+        private List<Object> sources;
+        private List<ExecutionStepInfo> executionStepInfos;
+        private List<Map<String, Object>> arguments;
+        private List<Field> fields;
+        private GraphQLFieldDefinition fieldDefinition;
+        private GraphQLOutputType fieldType;
+        private GraphQLSchema graphQLSchema;
+        private Object context;
+        private Object root;
+
+        private Builder() {
+        }
+
+        public Builder sources(List<Object> val) {
+            sources = val;
+            return this;
+        }
+
+        public Builder executionStepInfos(List<ExecutionStepInfo> val) {
+            executionStepInfos = val;
+            return this;
+        }
+
+        public Builder arguments(List<Map<String, Object>> val) {
+            arguments = val;
+            return this;
+        }
+
+        public Builder fields(List<Field> val) {
+            fields = val;
+            return this;
+        }
+
+        public Builder fieldDefinition(GraphQLFieldDefinition val) {
+            fieldDefinition = val;
+            return this;
+        }
+
+        public Builder fieldType(GraphQLOutputType val) {
+            fieldType = val;
+            return this;
+        }
+
+        public BatchedDataFetchingEnvironment build() {
+            return new BatchedDataFetchingEnvironment(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package graphql;
+
+import graphql.schema.DataFetcher;
+
+/**
+ * Marks a data fetcher which blocks the calling thread (e.g. a JDBC call): the CF engine calls it on the blocking
+ * fetch executor (see {@link CFExecution.Builder#blockingFetchExecutor}) instead of the thread which completed the
+ * previous step.
+ *
+ * {@link BatchedDataFetcher}s can be marked too: {@link #blocking(DataFetcher)} keeps them batched, and it keeps an
+ * {@link IdempotentDataFetcher} idempotent.
+ *
+ * @param <T> the type of the fetched value
+ */
+public interface BlockingDataFetcher<T> extends DataFetcher<T> {
+
+    @SuppressWarnings("unchecked")
+    static <T> BlockingDataFetcher<T> blocking(DataFetcher<T> dataFetcher) {
+        if (dataFetcher instanceof BlockingDataFetcher) {
+            return (BlockingDataFetcher<T>) dataFetcher;
+        }
+        boolean idempotent = dataFetcher instanceof IdempotentDataFetcher;
+        if (dataFetcher instanceof BatchedDataFetcher) {
+            BatchedDataFetcher batched = (BatchedDataFetcher) dataFetcher;
+            BlockingDataFetcher<?> blockingBatched = idempotent
+                    ? (BlockingIdempotentBatchedDataFetcher) batched::get
+                    : (BlockingBatchedDataFetcher) batched::get;
+            return (BlockingDataFetcher<T>) blockingBatched;
+        }
+        if (idempotent) {
+            BlockingIdempotentDataFetcher<T> blockingIdempotent = dataFetcher::get;
+            return blockingIdempotent;
+        }
+        return dataFetcher::get;
+    }
+
+    /**
+     * A blocking {@link BatchedDataFetcher}.
+     */
+    interface BlockingBatchedDataFetcher extends BlockingDataFetcher<Object>, BatchedDataFetcher {
+    }
+
+    /**
+     * A data fetcher which is both blocking and idempotent: offloaded to the blocking fetch executor and hedged.
+     */
+    interface BlockingIdempotentDataFetcher<T> extends BlockingDataFetcher<T>, IdempotentDataFetcher<T> {
+    }
+
+    /**
+     * A blocking and idempotent {@link BatchedDataFetcher}.
+     */
+    interface BlockingIdempotentBatchedDataFetcher extends BlockingIdempotentDataFetcher<Object>, BatchedDataFetcher {
+    }
+}
@@ -0,0 +1,55 @@
+package graphql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed size thread pool with a bounded queue for {@link BlockingDataFetcher}s: when the queue is full the fetch
+ * fails instead of queueing more and more work.
+ *
+ * The queue depth and the number of rejected fetches can be read for metrics. On a JDK with virtual threads any
+ * virtual thread executor can be used as blocking fetch executor instead.
+ */
+public class BoundedFetchExecutor implements Executor {
+
+    private final ThreadPoolExecutor threadPoolExecutor;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public BoundedFetchExecutor(String name, int threads, int queueCapacity) {
+        this.threadPoolExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(name + "-%d").build(),
+                (runnable, executor) -> {
+                    rejectedCount.incrementAndGet();
+                    throw new RejectedExecutionException(name + " is saturated: " + queueCapacity + " fetches are queued");
+                });
+        this.threadPoolExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        threadPoolExecutor.execute(command);
+    }
+
+    public int getQueueDepth() {
+        return threadPoolExecutor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return threadPoolExecutor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public void shutdown() {
+        threadPoolExecutor.shutdown();
+    }
+}
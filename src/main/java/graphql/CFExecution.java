@@ -5,45 +5,72 @@ import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionId;
 import graphql.execution.ExecutionPath;
 import graphql.execution.ExecutionStepInfo;
-import graphql.execution.FieldCollector;
-import graphql.execution.FieldCollectorParameters;
 import graphql.execution.ValuesResolver;
 import graphql.language.Document;
 import graphql.language.Field;
-import graphql.language.FragmentDefinition;
-import graphql.language.NodeUtil;
 import graphql.language.OperationDefinition;
 import graphql.language.VariableDefinition;
+import graphql.result.ResultNodesJsonWriter;
 import graphql.result.ResultNodesUtil;
 import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLSchema;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
+import static graphql.Assert.assertNotNull;
 import static graphql.execution.ExecutionContextBuilder.newExecutionContextBuilder;
 import static graphql.execution.ExecutionStepInfo.newExecutionStepInfo;
+import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode;
 
 public class CFExecution {
 
-    private final FieldCollector fieldCollector = new FieldCollector();
+    private final PreparedOperationCache preparedOperationCache;
+    private final FetchInstrumentation fetchInstrumentation;
+    private final DispatchWindow dispatchWindow;
+    private final FetchExecutors fetchExecutors;
+    private final FetchTimeouts fetchTimeouts;
+    private final HedgePolicy hedgePolicy;
+    private final FetchMemoization fetchMemoization;
+    private final FieldCache fieldCache;
+    private final int listChunkSize;
+
+    public CFExecution() {
+        this(newCFExecution());
+    }
+
+    private CFExecution(Builder builder) {
+        this.preparedOperationCache = builder.preparedOperationCache;
+        this.fetchInstrumentation = builder.fetchInstrumentation;
+        this.dispatchWindow = builder.dispatchWindow;
+        this.fetchExecutors = new FetchExecutors(builder.fetchExecutor, builder.blockingFetchExecutor, builder.continuationExecutor);
+        this.fetchTimeouts = builder.fetchTimeouts;
+        this.hedgePolicy = builder.hedgePolicy;
+        this.fetchMemoization = builder.fetchMemoization;
+        this.fieldCache = builder.fieldCache;
+        this.listChunkSize = builder.listChunkSize;
+    }
+
+    public static Builder newCFExecution() {
+        return new Builder();
+    }
 
     public CompletableFuture<ExecutionResult> execute(Document document,
                                                       GraphQLSchema graphQLSchema,
                                                       ExecutionId executionId,
                                                       ExecutionInput executionInput) {
-        NodeUtil.GetOperationResult getOperationResult = NodeUtil.getOperation(document, executionInput.getOperationName());
-        Map<String, FragmentDefinition> fragmentsByName = getOperationResult.fragmentsByName;
-        OperationDefinition operationDefinition = getOperationResult.operationDefinition;
+        PreparedOperation preparedOperation = prepare(document, graphQLSchema, executionInput.getOperationName());
 
-        ValuesResolver valuesResolver = new ValuesResolver();
-        Map<String, Object> inputVariables = executionInput.getVariables();
-        List<VariableDefinition> variableDefinitions = operationDefinition.getVariableDefinitions();
-
-        Map<String, Object> coercedVariables;
+        ExecutionContext executionContext;
         try {
-            coercedVariables = valuesResolver.coerceArgumentValues(graphQLSchema, variableDefinitions, inputVariables);
+            executionContext = newExecutionContext(document, graphQLSchema, executionId, executionInput, preparedOperation);
         } catch (RuntimeException rte) {
             if (rte instanceof GraphQLError) {
                 return CompletableFuture.completedFuture(new ExecutionResultImpl((GraphQLError) rte));
@@ -52,52 +79,298 @@ public class CFExecution {
             return Async.exceptionallyCompletedFuture(rte);
         }
 
-        ExecutionContext executionContext = newExecutionContextBuilder()
+        return executeOperation(executionContext, executionInput.getRoot(), preparedOperation)
+                .thenApply(rootExecutionResultNode -> {
+                    Object data = ResultNodesUtil.toData(rootExecutionResultNode);
+                    return ExecutionResultImpl.newExecutionResult()
+                            .data(data)
+                            .build();
+                })
+                .thenApply(ExecutionResult.class::cast);
+    }
+
+    /**
+     * Like {@link #execute(Document, GraphQLSchema, ExecutionId, ExecutionInput)}, but writes the result as json
+     * straight from the result tree (see {@link ResultNodesJsonWriter}) instead of converting it into maps and lists first.
+     *
+     * @param document       the document to execute
+     * @param graphQLSchema  the schema
+     * @param executionId    the id of the execution
+     * @param executionInput the input
+     * @param outputStream   the stream to write to: flushed, but not closed
+     *
+     * @return completes when the result is written
+     */
+    public CompletableFuture<Void> executeAndWrite(Document document,
+                                                   GraphQLSchema graphQLSchema,
+                                                   ExecutionId executionId,
+                                                   ExecutionInput executionInput,
+                                                   OutputStream outputStream) {
+        PreparedOperation preparedOperation = prepare(document, graphQLSchema, executionInput.getOperationName());
+
+        ExecutionContext executionContext;
+        try {
+            executionContext = newExecutionContext(document, graphQLSchema, executionId, executionInput, preparedOperation);
+        } catch (RuntimeException rte) {
+            if (rte instanceof GraphQLError) {
+                return write(null, Collections.singletonList((GraphQLError) rte), outputStream);
+            }
+
+            return Async.exceptionallyCompletedFuture(rte);
+        }
+
+        return executeOperation(executionContext, executionInput.getRoot(), preparedOperation)
+                .thenCompose(rootExecutionResultNode -> write(rootExecutionResultNode, Collections.emptyList(), outputStream));
+    }
+
+    /**
+     * Executes with incremental delivery: the initial payload is emitted once the result without the fields of
+     * {@code @defer} fragments and without the items of {@code @stream(initialCount:)} lists after their initial count
+     * is resolved. The deferred parts are resolved afterwards, batched like the initial result, and emitted as patches
+     * with the path of their object or item. The last payload has {@code hasNext} false.
+     *
+     * The directives are not part of the schema: they are recognized by name on inline fragments, fragment spreads
+     * (defer) and list fields (stream).
+     *
+     * @param document       the document to execute
+     * @param graphQLSchema  the schema
+     * @param executionId    the id of the execution
+     * @param executionInput the input
+     *
+     * @return the payloads: the execution starts when subscribed
+     */
+    public Flux<IncrementalPayload> executeIncrementally(Document document,
+                                                         GraphQLSchema graphQLSchema,
+                                                         ExecutionId executionId,
+                                                         ExecutionInput executionInput) {
+        PreparedOperation preparedOperation = prepare(document, graphQLSchema, executionInput.getOperationName());
+
+        ExecutionContext executionContext;
+        try {
+            executionContext = newExecutionContext(document, graphQLSchema, executionId, executionInput, preparedOperation);
+        } catch (RuntimeException rte) {
+            if (rte instanceof GraphQLError) {
+                return Flux.just(IncrementalPayload.initial(null, Collections.singletonList((GraphQLError) rte), false));
+            }
+
+            return Flux.error(rte);
+        }
+
+        return Flux.create(sink -> executeOperationIncrementally(executionContext, executionInput.getRoot(), preparedOperation, sink::next)
+                .whenComplete((done, exception) -> {
+                    if (exception != null) {
+                        sink.error(exception);
+                    } else {
+                        sink.complete();
+                    }
+                }));
+    }
+
+    private CompletableFuture<Void> write(RootExecutionResultNode rootExecutionResultNode, List<GraphQLError> errors, OutputStream outputStream) {
+        try {
+            ResultNodesJsonWriter.write(rootExecutionResultNode, errors, outputStream);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return Async.exceptionallyCompletedFuture(e);
+        }
+    }
+
+    private ExecutionContext newExecutionContext(Document document,
+                                                 GraphQLSchema graphQLSchema,
+                                                 ExecutionId executionId,
+                                                 ExecutionInput executionInput,
+                                                 PreparedOperation preparedOperation) {
+        OperationDefinition operationDefinition = preparedOperation.getOperationDefinition();
+
+        ValuesResolver valuesResolver = new ValuesResolver();
+        Map<String, Object> inputVariables = executionInput.getVariables();
+        List<VariableDefinition> variableDefinitions = operationDefinition.getVariableDefinitions();
+        Map<String, Object> coercedVariables = valuesResolver.coerceArgumentValues(graphQLSchema, variableDefinitions, inputVariables);
+
+        return newExecutionContextBuilder()
                 .executionId(executionId)
                 .graphQLSchema(graphQLSchema)
                 .context(executionInput.getContext())
                 .root(executionInput.getRoot())
-                .fragmentsByName(fragmentsByName)
+                .fragmentsByName(preparedOperation.getFragmentsByName())
                 .variables(coercedVariables)
                 .document(document)
                 .operationDefinition(operationDefinition)
                 .dataLoaderRegistry(executionInput.getDataLoaderRegistry())
                 .build();
+    }
 
-        return executeOperation(executionContext, executionInput.getRoot(), executionContext.getOperationDefinition());
+    private PreparedOperation prepare(Document document, GraphQLSchema graphQLSchema, String operationName) {
+        if (preparedOperationCache == null) {
+            return PreparedOperation.prepare(graphQLSchema, document, operationName);
+        }
+        return preparedOperationCache.get(graphQLSchema, document, operationName);
     }
 
 
-    private CompletableFuture<ExecutionResult> executeOperation(ExecutionContext executionContext, Object root, OperationDefinition operationDefinition) {
+    private CompletableFuture<RootExecutionResultNode> executeOperation(ExecutionContext executionContext, Object root, PreparedOperation preparedOperation) {
+
+        Map<String, List<Field>> fields = preparedOperation.getRootFields(executionContext.getVariables());
+        FieldSubSelection fieldSubSelection = rootFieldSubSelection(root, fields, preparedOperation);
 
-        GraphQLObjectType operationRootType;
+        FetchInstrumentationContext operationContext = fetchInstrumentation.beginOperation(executionContext);
+        long startNanos = operationContext.start();
+        CFExecutionStrategyBatching executionStrategyBatching = new CFExecutionStrategyBatching(executionContext, preparedOperation, fetchInstrumentation, dispatchWindow, fetchExecutors, fetchTimeouts, hedgePolicy, fetchMemoization, fieldCache, false, listChunkSize);
+        // the errors are not collected into the result yet
+        return operationContext.whenEnded(startNanos, executionStrategyBatching.execute(fieldSubSelection), rootExecutionResultNode -> Collections.emptyList());
+    }
 
-        operationRootType = Common.getOperationRootType(executionContext.getGraphQLSchema(), operationDefinition);
+    private CompletableFuture<Void> executeOperationIncrementally(ExecutionContext executionContext,
+                                                                  Object root,
+                                                                  PreparedOperation preparedOperation,
+                                                                  Consumer<IncrementalPayload> payloadConsumer) {
+        Map<String, List<Field>> fields = preparedOperation.getRootFields(executionContext.getVariables());
+        BatchKey rootBatchKey = preparedOperation.getIncrementalBatchKeys(executionContext.getVariables())
+                .splitRootFields(preparedOperation.getOperationRootType(), preparedOperation.getOperationDefinition().getSelectionSet(), fields);
+        FieldSubSelection fieldSubSelection = rootFieldSubSelection(root, rootBatchKey.getFields(), preparedOperation);
 
-        FieldCollectorParameters collectorParameters = FieldCollectorParameters.newParameters()
-                .schema(executionContext.getGraphQLSchema())
-                .objectType(operationRootType)
-                .fragments(executionContext.getFragmentsByName())
-                .variables(executionContext.getVariables())
-                .build();
-        Map<String, List<Field>> fields = fieldCollector.collectFields(collectorParameters, operationDefinition.getSelectionSet());
+        FetchInstrumentationContext operationContext = fetchInstrumentation.beginOperation(executionContext);
+        long startNanos = operationContext.start();
+        CFExecutionStrategyBatching executionStrategyBatching = new CFExecutionStrategyBatching(executionContext, preparedOperation, fetchInstrumentation, dispatchWindow, fetchExecutors, fetchTimeouts, hedgePolicy, fetchMemoization, fieldCache, true, listChunkSize);
+        CompletableFuture<Void> executed = executionStrategyBatching.executeIncrementally(fieldSubSelection, rootBatchKey.getDeferredFields(), payloadConsumer);
+        return operationContext.whenEnded(startNanos, executed, done -> Collections.emptyList());
+    }
+
+    private FieldSubSelection rootFieldSubSelection(Object root, Map<String, List<Field>> fields, PreparedOperation preparedOperation) {
+        GraphQLObjectType operationRootType = preparedOperation.getOperationRootType();
         ExecutionStepInfo executionInfo = newExecutionStepInfo().type(operationRootType).path(ExecutionPath.rootPath()).build();
 
         FieldSubSelection fieldSubSelection = new FieldSubSelection();
         fieldSubSelection.setSource(root);
         fieldSubSelection.setFields(fields);
         fieldSubSelection.setExecutionStepInfo(executionInfo);
-
-        CFExecutionStrategyBatching executionStrategyBatching = new CFExecutionStrategyBatching(executionContext);
-        return executionStrategyBatching.execute(fieldSubSelection)
-                .thenApply(rootExecutionResultNode -> {
-                    Object data = ResultNodesUtil.toData(rootExecutionResultNode);
-                    return ExecutionResultImpl.newExecutionResult()
-                            .data(data)
-                            .build();
-                })
-                .thenApply(ExecutionResult.class::cast);
+        return fieldSubSelection;
     }
 
+    public static final class Builder {
+        private PreparedOperationCache preparedOperationCache;
+        private FetchInstrumentation fetchInstrumentation = FetchInstrumentation.NOOP;
+        private DispatchWindow dispatchWindow;
+        private Executor fetchExecutor;
+        private Executor blockingFetchExecutor;
+        private Executor continuationExecutor;
+        private FetchTimeouts fetchTimeouts = FetchTimeouts.NONE;
+        private HedgePolicy hedgePolicy;
+        private FetchMemoization fetchMemoization;
+        private FieldCache fieldCache;
+        private int listChunkSize = ListChunks.DEFAULT_CHUNK_SIZE;
+
+        private Builder() {
+        }
+
+        /**
+         * @param val caches the prepared operations of repeatedly executed documents
+         *
+         * @return this builder
+         */
+        public Builder preparedOperationCache(PreparedOperationCache val) {
+            preparedOperationCache = assertNotNull(val);
+            return this;
+        }
+
+        public Builder fetchInstrumentation(FetchInstrumentation val) {
+            fetchInstrumentation = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val dispatches the children of a batch as soon as it is resolved instead of waiting for the whole level
+         *
+         * @return this builder
+         */
+        public Builder dispatchWindow(DispatchWindow val) {
+            dispatchWindow = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val calls the data fetchers, e.g. a {@link BoundedFetchExecutor} or on newer JVMs an executor which
+         *            starts a virtual thread per task
+         *
+         * @return this builder
+         */
+        public Builder fetchExecutor(Executor val) {
+            fetchExecutor = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val calls the {@link BlockingDataFetcher}s: without it they run on the fetch executor
+         *
+         * @return this builder
+         */
+        public Builder blockingFetchExecutor(Executor val) {
+            blockingFetchExecutor = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val analyzes the fetched values so a fetcher thread is not used for the rest of the execution
+         *
+         * @return this builder
+         */
+        public Builder continuationExecutor(Executor val) {
+            continuationExecutor = assertNotNull(val);
+            return this;
+        }
+
+        public Builder fetchTimeouts(FetchTimeouts val) {
+            fetchTimeouts = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val hedges the slow fetches of {@link IdempotentDataFetcher}s: share it between executions, it keeps
+         *            the latencies of the fields
+         *
+         * @return this builder
+         */
+        public Builder hedgePolicy(HedgePolicy val) {
+            hedgePolicy = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val memoizes the fetches of every execution: a memo only lives as long as its execution
+         *
+         * @return this builder
+         */
+        public Builder fetchMemoization(FetchMemoization val) {
+            fetchMemoization = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val serves the values of cached fields across executions
+         *
+         * @return this builder
+         */
+        public Builder fieldCache(FieldCache val) {
+            fieldCache = assertNotNull(val);
+            return this;
+        }
+
+        /**
+         * @param val the number of elements pulled at a time from {@link java.util.Iterator}, {@link java.util.stream.Stream}
+         *            and {@link org.reactivestreams.Publisher} list values: the items of a {@code @stream} list are
+         *            delivered one chunk per wave by {@link #executeIncrementally}, so only a chunk is on the heap
+         *
+         * @return this builder
+         */
+        public Builder listChunkSize(int val) {
+            Assert.assertTrue(val > 0, "listChunkSize must be positive");
+            listChunkSize = val;
+            return this;
+        }
+
+        public CFExecution build() {
+            return new CFExecution(this);
+        }
+    }
 
 }
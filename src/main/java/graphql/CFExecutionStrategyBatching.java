@@ -3,24 +3,34 @@ package graphql;
 import graphql.execution.Async;
 import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionStepInfo;
+import graphql.execution.ExecutionPath;
 import graphql.language.Field;
 import graphql.result.ExecutionResultNode;
-import graphql.result.ExecutionResultNodeZipper;
-import graphql.result.MultiZipper;
-import graphql.result.ObjectExecutionResultNode;
+import graphql.result.ListExecutionResultNode;
+import graphql.result.ResultArena;
 import graphql.result.ResultNodesUtil;
 import reactor.util.function.Tuple2;
 import reactor.util.function.Tuples;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static graphql.FetchedValueAnalysis.FetchedValueType.OBJECT;
+import static graphql.FetchedValueAnalysis.newFetchedValueAnalysis;
 import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode;
 import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode;
+import static graphql.schema.GraphQLTypeUtil.isList;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
 
@@ -31,28 +41,379 @@ public class CFExecutionStrategyBatching {
     ResultNodesCreator resultNodesCreator = new ResultNodesCreator();
 
     private final ExecutionContext executionContext;
+    private final FetchInstrumentation fetchInstrumentation;
+    // null: resolve level by level
+    private final DispatchWindow dispatchWindow;
+    private final DataLoaderDispatcher dataLoaderDispatcher;
+    private final FetchExecutors fetchExecutors;
+    // null: not an incremental execution
+    private final Queue<DeferredPatch> deferredPatches;
+    // the lazy @stream lists to pull the next chunk of, only for incremental executions
+    private final Queue<StreamedList> streamedLists;
+    private final int listChunkSize;
     private FetchedValueAnalyzer fetchedValueAnalyzer;
 
 
-    public CFExecutionStrategyBatching(ExecutionContext executionContext) {
+    public CFExecutionStrategyBatching(ExecutionContext executionContext,
+                                       PreparedOperation preparedOperation,
+                                       FetchInstrumentation fetchInstrumentation,
+                                       DispatchWindow dispatchWindow,
+                                       FetchExecutors fetchExecutors,
+                                       FetchTimeouts fetchTimeouts,
+                                       HedgePolicy hedgePolicy,
+                                       FetchMemoization fetchMemoization,
+                                       FieldCache fieldCache) {
+        this(executionContext, preparedOperation, fetchInstrumentation, dispatchWindow, fetchExecutors, fetchTimeouts, hedgePolicy,
+                fetchMemoization, fieldCache, false, ListChunks.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param incremental   the fields of {@code @defer} fragments and the items of {@code @stream} lists after their
+     *                      initial count are resolved after the initial result (see {@link #executeIncrementally})
+     * @param listChunkSize the number of elements pulled at a time from lazy list values ({@link java.util.Iterator},
+     *                      {@link java.util.stream.Stream} or {@link org.reactivestreams.Publisher}): a streamed lazy
+     *                      list is resolved one chunk per wave
+     */
+    public CFExecutionStrategyBatching(ExecutionContext executionContext,
+                                       PreparedOperation preparedOperation,
+                                       FetchInstrumentation fetchInstrumentation,
+                                       DispatchWindow dispatchWindow,
+                                       FetchExecutors fetchExecutors,
+                                       FetchTimeouts fetchTimeouts,
+                                       HedgePolicy hedgePolicy,
+                                       FetchMemoization fetchMemoization,
+                                       FieldCache fieldCache,
+                                       boolean incremental,
+                                       int listChunkSize) {
         this.executionContext = executionContext;
-        this.fetchedValueAnalyzer = new FetchedValueAnalyzer(executionContext);
-        this.valueFetcher = new ValueFetcherCF(executionContext);
-        this.executionInfoFactory = new ExecutionStepInfoFactory(executionContext);
+        this.fetchExecutors = fetchExecutors;
+        this.fetchInstrumentation = fetchInstrumentation;
+        this.dispatchWindow = dispatchWindow;
+        this.dataLoaderDispatcher = new DataLoaderDispatcher(executionContext.getDataLoaderRegistry());
+        this.deferredPatches = incremental ? new ConcurrentLinkedQueue<>() : null;
+        this.streamedLists = incremental ? new ConcurrentLinkedQueue<>() : null;
+        this.listChunkSize = listChunkSize;
+        this.fetchedValueAnalyzer = new FetchedValueAnalyzer(executionContext, preparedOperation, incremental);
+        this.valueFetcher = new ValueFetcherCF(executionContext, fetchInstrumentation, fetchExecutors, fetchTimeouts, hedgePolicy,
+                fetchMemoization == null ? null : fetchMemoization.newFetchMemo(), fieldCache, dataLoaderDispatcher, listChunkSize);
+        this.executionInfoFactory = new ExecutionStepInfoFactory(executionContext, preparedOperation.getFieldDefinitions());
     }
 
     public CompletableFuture<RootExecutionResultNode> execute(FieldSubSelection fieldSubSelection) {
-        CompletableFuture<RootExecutionResultNode> rootMono = fetchSubSelection(fieldSubSelection).thenApply(RootExecutionResultNode::new);
-
+        FetchInstrumentationContext levelContext = fetchInstrumentation.beginLevel(executionContext, 1, 1);
+        long startNanos = levelContext.start();
+        CompletableFuture<Map<String, ExecutionResultNode>> rootFields = fetchSubSelection(fieldSubSelection);
+        dataLoaderDispatcher.dispatch();
+        CompletableFuture<RootExecutionResultNode> rootMono = levelContext.whenEnded(startNanos,
+                rootFields.thenApply(RootExecutionResultNode::new),
+                rootNode -> childErrors(rootNode.getChildren()));
+
+        ResultArena resultArena = new ResultArena();
         return rootMono
                 .thenCompose(rootNode -> {
-                    MultiZipper unresolvedNodes = ResultNodesUtil.getUnresolvedNodes(rootNode);
-                    return nextStep(unresolvedNodes);
-                })
-                .thenApply(finalZipper -> finalZipper.toRootNode())
-                .thenApply(RootExecutionResultNode.class::cast);
+                    List<UnresolvedObjectResultNode> unresolvedNodes = new ArrayList<>();
+                    ResultArena.collectUnresolvedNodes(rootNode.getChildren(), unresolvedNodes);
+                    CompletableFuture<Void> resolved;
+                    if (dispatchWindow == null) {
+                        resolved = nextLevel(unresolvedNodes, 2, resultArena, null);
+                    } else {
+                        resolved = new PipelinedBatchDispatcher(dispatchWindow, resultArena, fetchExecutors.getTimerContinuationExecutor(), batch -> {
+                            CompletableFuture<List<Map<String, ExecutionResultNode>>> childrenPerNode = fetchAndAnalyze(batch);
+                            dataLoaderDispatcher.dispatch();
+                            return childrenPerNode;
+                        }).resolve(unresolvedNodes);
+                    }
+                    return resolved.thenApply(done -> resultArena.freeze(rootNode));
+                });
+    }
+
+    /**
+     * Resolves the initial result like {@link #execute(FieldSubSelection)} and then the deferred fields and streamed
+     * list items in waves: every wave resolves all patches known when the previous one completed (batched and level
+     * by level like the initial result) and may defer new patches, e.g. nested {@code @defer} fragments. A patch is
+     * delivered once the level resolving the last object of its subtree completed, not only at the end of its wave.
+     *
+     * @param fieldSubSelection  the root fields of the initial result
+     * @param rootDeferredFields the deferred root fields
+     * @param payloadConsumer    called with the initial payload and then with the patches of every wave
+     *
+     * @return completes after the last payload
+     */
+    public CompletableFuture<Void> executeIncrementally(FieldSubSelection fieldSubSelection,
+                                                        List<DeferredFields> rootDeferredFields,
+                                                        Consumer<IncrementalPayload> payloadConsumer) {
+        Assert.assertTrue(deferredPatches != null, "not an incremental execution");
+        deferFields(fieldSubSelection, null, rootDeferredFields);
+        return execute(fieldSubSelection).thenCompose(rootNode -> {
+            Object data = ResultNodesUtil.toData(rootNode);
+            boolean hasNext = hasPendingPatches();
+            payloadConsumer.accept(IncrementalPayload.initial(data, Collections.emptyList(), hasNext));
+            return hasNext ? nextPatches(payloadConsumer) : CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private boolean hasPendingPatches() {
+        return !deferredPatches.isEmpty() || !streamedLists.isEmpty();
     }
 
+    private CompletableFuture<Void> nextPatches(Consumer<IncrementalPayload> payloadConsumer) {
+        return pullStreamedLists().thenCompose(pulled -> resolvePatches(payloadConsumer));
+    }
+
+    private CompletableFuture<Void> resolvePatches(Consumer<IncrementalPayload> payloadConsumer) {
+        List<DeferredPatch> patches = new ArrayList<>();
+        DeferredPatch deferredPatch;
+        while ((deferredPatch = deferredPatches.poll()) != null) {
+            patches.add(deferredPatch);
+        }
+        if (patches.isEmpty()) {
+            // a lazy list ended right after a full chunk
+            payloadConsumer.accept(IncrementalPayload.completed());
+            return CompletableFuture.completedFuture(null);
+        }
+        ResultArena resultArena = new ResultArena();
+        PatchWave wave = new PatchWave(patches, resultArena, payloadConsumer);
+        // e.g. streamed scalar items
+        wave.deliverResolvedPatches();
+        return nextLevel(wave.unresolvedNodes, 2, resultArena, wave)
+                .thenCompose(done -> hasPendingPatches() ? nextPatches(payloadConsumer) : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * The patches of one wave: counts the unresolved objects of every patch, so a patch is frozen and delivered as
+     * soon as its own subtree is resolved. Only changed by the thread completing a level, like the arena.
+     */
+    private class PatchWave {
+        private final List<DeferredPatch> patches;
+        private final ResultArena resultArena;
+        private final Consumer<IncrementalPayload> payloadConsumer;
+        private final List<UnresolvedObjectResultNode> unresolvedNodes = new ArrayList<>();
+        // the patch index of every unresolved object of the wave
+        private final Map<UnresolvedObjectResultNode, Integer> patchByNode = new IdentityHashMap<>();
+        private final int[] pendingNodes;
+        private final boolean[] delivered;
+        private int deliveredCount;
+
+        private PatchWave(List<DeferredPatch> patches, ResultArena resultArena, Consumer<IncrementalPayload> payloadConsumer) {
+            this.patches = patches;
+            this.resultArena = resultArena;
+            this.payloadConsumer = payloadConsumer;
+            this.pendingNodes = new int[patches.size()];
+            this.delivered = new boolean[patches.size()];
+            for (int i = 0; i < patches.size(); i++) {
+                if (patches.get(i).node == null) {
+                    continue;
+                }
+                List<UnresolvedObjectResultNode> patchNodes = new ArrayList<>();
+                ResultArena.collectUnresolvedNodes(Collections.singletonList(patches.get(i).node), patchNodes);
+                addPending(i, patchNodes);
+                unresolvedNodes.addAll(patchNodes);
+            }
+        }
+
+        private void addPending(int patch, List<UnresolvedObjectResultNode> nodes) {
+            pendingNodes[patch] += nodes.size();
+            for (UnresolvedObjectResultNode node : nodes) {
+                patchByNode.put(node, patch);
+            }
+        }
+
+        // the node was filled with its children: they belong to the same patch
+        private void filled(UnresolvedObjectResultNode node, List<UnresolvedObjectResultNode> unresolvedChildren) {
+            Integer patch = patchByNode.remove(node);
+            pendingNodes[patch]--;
+            addPending(patch, unresolvedChildren);
+        }
+
+        private void deliverResolvedPatches() {
+            for (int i = 0; i < patches.size(); i++) {
+                if (delivered[i] || pendingNodes[i] > 0) {
+                    continue;
+                }
+                delivered[i] = true;
+                deliveredCount++;
+                DeferredPatch patch = patches.get(i);
+                Object data = patch.node == null ? null : ResultNodesUtil.toData(resultArena.freeze(patch.node));
+                // the last patch of the wave is delivered after all its fetches: every new patch is known
+                boolean hasNext = deliveredCount < patches.size() || hasPendingPatches();
+                payloadConsumer.accept(IncrementalPayload.patch(data, patch.errors, patch.path, patch.label, hasNext));
+            }
+        }
+    }
+
+    // pulls the next chunk of every streamed lazy list: its items become the patches of the next wave
+    private CompletableFuture<Void> pullStreamedLists() {
+        List<CompletableFuture<Void>> pulls = new ArrayList<>();
+        StreamedList streamedList;
+        while ((streamedList = streamedLists.poll()) != null) {
+            pulls.add(pullStreamedList(streamedList));
+        }
+        return CompletableFuture.allOf(pulls.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> pullStreamedList(StreamedList streamedList) {
+        return streamedList.chunks.next(listChunkSize).handle((items, exception) -> {
+            if (exception != null) {
+                // the list ends with a patch for the item which couldn't be pulled
+                Field field = streamedList.sameFields.get(0);
+                GraphQLError error = new ExceptionWhileDataFetching(streamedList.executionInfo.getPath(), unwrap(exception), field.getSourceLocation());
+                ExecutionPath path = streamedList.executionInfo.getPath().segment(streamedList.nextIndex);
+                deferredPatches.add(new DeferredPatch(path, streamedList.label, null, Collections.singletonList(error)));
+                return null;
+            }
+            for (int i = 0; i < items.size(); i++) {
+                ExecutionStepInfo executionStepInfo = executionInfoFactory.newExecutionStepInfoForListElement(streamedList.executionInfo, streamedList.nextIndex + i);
+                FetchedValueAnalysis fetchedValueAnalysis = fetchedValueAnalyzer.analyzeFetchedValue(items.get(i), streamedList.name, streamedList.sameFields, executionStepInfo);
+                ExecutionResultNode node = resultNodesCreator.createResultNode(fetchedValueAnalysis);
+                deferredPatches.add(new DeferredPatch(executionStepInfo.getPath(), streamedList.label, node));
+            }
+            if (items.size() == listChunkSize) {
+                streamedLists.add(new StreamedList(streamedList, streamedList.nextIndex + items.size()));
+            }
+            return null;
+        });
+    }
+
+    private static Throwable unwrap(Throwable exception) {
+        return exception instanceof CompletionException && exception.getCause() != null ? exception.getCause() : exception;
+    }
+
+    /**
+     * Pulls the elements of lazy list values: all of them, or only the initial count of a {@code @stream} list in
+     * an incremental execution. The other elements of a streamed list are pulled chunk by chunk after the initial
+     * result.
+     */
+    private CompletableFuture<List<FetchedValue>> resolveLazyLists(List<FetchedValue> fetchedValues, String name, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        List<CompletableFuture<FetchedValue>> resolvedValues = null;
+        for (int i = 0; i < fetchedValues.size(); i++) {
+            FetchedValue fetchedValue = fetchedValues.get(i);
+            if (resolvedValues == null && isLazyList(fetchedValue, executionInfos.get(i))) {
+                resolvedValues = new ArrayList<>(fetchedValues.size());
+                for (int j = 0; j < i; j++) {
+                    resolvedValues.add(CompletableFuture.completedFuture(fetchedValues.get(j)));
+                }
+            }
+            if (resolvedValues != null) {
+                resolvedValues.add(resolveLazyList(fetchedValue, name, sameFields, executionInfos.get(i)));
+            }
+        }
+        return resolvedValues == null ? CompletableFuture.completedFuture(fetchedValues) : Async.each(resolvedValues);
+    }
+
+    private CompletableFuture<FetchedValue> resolveLazyList(FetchedValue fetchedValue, String name, List<Field> sameFields, ExecutionStepInfo executionInfo) {
+        if (!isLazyList(fetchedValue, executionInfo)) {
+            return CompletableFuture.completedFuture(fetchedValue);
+        }
+        ListChunks chunks = ListChunks.of(fetchedValue.getFetchedValue());
+        Field field = sameFields.get(0);
+        int initialCount = deferredPatches == null ? -1 : DeferredFieldCollector.streamInitialCount(field, executionContext.getVariables());
+        CompletableFuture<List<Object>> elements = initialCount < 0 ? chunks.collect(listChunkSize) : chunks.next(initialCount);
+        return elements.handle((values, exception) -> {
+            if (exception != null) {
+                // the errors of a fetched value can be immutable
+                List<GraphQLError> errors = new ArrayList<>(fetchedValue.getErrors());
+                errors.add(new ExceptionWhileDataFetching(executionInfo.getPath(), unwrap(exception), field.getSourceLocation()));
+                return new FetchedValue(null, fetchedValue.getRawFetchedValue(), errors);
+            }
+            if (initialCount >= 0 && values.size() == initialCount) {
+                // the rest is pulled after the initial result
+                streamedLists.add(new StreamedList(chunks, name, sameFields, executionInfo, DeferredFieldCollector.streamLabel(field), initialCount));
+            }
+            return new FetchedValue(values, fetchedValue.getRawFetchedValue(), fetchedValue.getErrors());
+        });
+    }
+
+    private static boolean isLazyList(FetchedValue fetchedValue, ExecutionStepInfo executionInfo) {
+        return ListChunks.isLazyList(fetchedValue.getFetchedValue()) && isList(executionInfo.getUnwrappedNonNullType());
+    }
+
+    private static class StreamedList {
+        private final ListChunks chunks;
+        private final String name;
+        private final List<Field> sameFields;
+        // the step info of the list field
+        private final ExecutionStepInfo executionInfo;
+        private final String label;
+        private final int nextIndex;
+
+        private StreamedList(ListChunks chunks, String name, List<Field> sameFields, ExecutionStepInfo executionInfo, String label, int nextIndex) {
+            this.chunks = chunks;
+            this.name = name;
+            this.sameFields = sameFields;
+            this.executionInfo = executionInfo;
+            this.label = label;
+            this.nextIndex = nextIndex;
+        }
+
+        private StreamedList(StreamedList streamedList, int nextIndex) {
+            this(streamedList.chunks, streamedList.name, streamedList.sameFields, streamedList.executionInfo, streamedList.label, nextIndex);
+        }
+    }
+
+    // the deferred fields of an object are resolved as an unresolved node of their own with the same source
+    private void deferFields(FieldSubSelection fieldSubSelection, String name, List<DeferredFields> deferredFieldsList) {
+        for (DeferredFields deferredFields : deferredFieldsList) {
+            FieldSubSelection deferredSubSelection = new FieldSubSelection();
+            deferredSubSelection.setSource(fieldSubSelection.getSource());
+            deferredSubSelection.setExecutionStepInfo(fieldSubSelection.getExecutionStepInfo());
+            deferredSubSelection.setFields(deferredFields.getFields());
+            deferredSubSelection.setBatchKey(deferredFields.getBatchKey());
+            FetchedValueAnalysis fetchedValueAnalysis = newFetchedValueAnalysis(OBJECT)
+                    .name(name)
+                    .completedValue(fieldSubSelection.getSource())
+                    .fieldSubSelection(deferredSubSelection)
+                    .executionStepInfo(fieldSubSelection.getExecutionStepInfo())
+                    .build();
+            ExecutionPath path = fieldSubSelection.getExecutionStepInfo().getPath();
+            deferredPatches.add(new DeferredPatch(path, deferredFields.getLabel(), new UnresolvedObjectResultNode(fetchedValueAnalysis)));
+        }
+    }
+
+    private ExecutionResultNode createResultNode(FetchedValueAnalysis fetchedValueAnalysis) {
+        ExecutionResultNode node = resultNodesCreator.createResultNode(fetchedValueAnalysis);
+        if (deferredPatches != null && node instanceof ListExecutionResultNode) {
+            return streamItems((ListExecutionResultNode) node);
+        }
+        return node;
+    }
+
+    // keeps the initial count of a @stream list, the other items become patches
+    private ExecutionResultNode streamItems(ListExecutionResultNode listNode) {
+        ExecutionStepInfo executionStepInfo = listNode.getFetchedValueAnalysis().getExecutionStepInfo();
+        if (executionStepInfo == null || executionStepInfo.getField() == null) {
+            return listNode;
+        }
+        Field field = executionStepInfo.getField();
+        int initialCount = DeferredFieldCollector.streamInitialCount(field, executionContext.getVariables());
+        List<ExecutionResultNode> items = listNode.getChildren();
+        if (initialCount < 0 || items.size() <= initialCount) {
+            return listNode;
+        }
+        String label = DeferredFieldCollector.streamLabel(field);
+        for (int i = initialCount; i < items.size(); i++) {
+            deferredPatches.add(new DeferredPatch(executionStepInfo.getPath().segment(i), label, items.get(i)));
+        }
+        return new ListExecutionResultNode(listNode.getFetchedValueAnalysis(), new ArrayList<>(items.subList(0, initialCount)));
+    }
+
+    private static class DeferredPatch {
+        private final ExecutionPath path;
+        private final String label;
+        // an unresolved node for the deferred fields of an object or a streamed item, null if the item failed
+        private final ExecutionResultNode node;
+        private final List<GraphQLError> errors;
+
+        private DeferredPatch(ExecutionPath path, String label, ExecutionResultNode node) {
+            this(path, label, node, Collections.emptyList());
+        }
+
+        private DeferredPatch(ExecutionPath path, String label, ExecutionResultNode node, List<GraphQLError> errors) {
+            this.path = path;
+            this.label = label;
+            this.node = node;
+            this.errors = errors;
+        }
+    }
 
     private CompletableFuture<Map<String, ExecutionResultNode>> fetchSubSelection(FieldSubSelection fieldSubSelection) {
         CompletableFuture<List<FetchedValueAnalysis>> fetchedValueAnalysisFlux = fetchAndAnalyze(fieldSubSelection);
@@ -61,7 +422,7 @@ public class CFExecutionStrategyBatching {
 
     private CompletableFuture<Map<String, ExecutionResultNode>> fetchedValueAnalysisFluxToNodes(CompletableFuture<List<FetchedValueAnalysis>> fetchedValueAnalysisFlux) {
         CompletableFuture<List<Tuple2<String, ExecutionResultNode>>> tuplesList = Async2.map(fetchedValueAnalysisFlux,
-                fetchedValueAnalysis -> Tuples.of(fetchedValueAnalysis.getName(), resultNodesCreator.createResultNode(fetchedValueAnalysis)));
+                fetchedValueAnalysis -> Tuples.of(fetchedValueAnalysis.getName(), createResultNode(fetchedValueAnalysis)));
         return tuplesToMap(tuplesList);
     }
 
@@ -74,47 +435,86 @@ public class CFExecutionStrategyBatching {
         });
     }
 
-    private CompletableFuture<MultiZipper> nextStep(MultiZipper multizipper) {
-        MultiZipper nextUnresolvedNodes = ResultNodesUtil.getUnresolvedNodes(multizipper.toRootNode());
-        if (nextUnresolvedNodes.getZippers().size() == 0) {
-            return CompletableFuture.completedFuture(nextUnresolvedNodes);
+    /**
+     * Resolves one level of unresolved nodes and then continues with the unresolved nodes created by this level.
+     *
+     * Data loaders are dispatched once the fetches of all batches are issued. The children of the resolved nodes are
+     * filled into the arena once all batches of the level completed: the arena is only changed by the thread completing
+     * the level and the completion of the level orders these changes before the next level.
+     *
+     * @param wave the patches resolved or null for the initial result
+     */
+    private CompletableFuture<Void> nextLevel(List<UnresolvedObjectResultNode> unresolvedNodes, int level, ResultArena resultArena, PatchWave wave) {
+        if (unresolvedNodes.size() == 0) {
+            return CompletableFuture.completedFuture(null);
         }
-        List<MultiZipper> groups = groupNodesIntoBatches(nextUnresolvedNodes);
-        return nextStepImpl(groups).thenCompose(this::nextStep);
+        FetchInstrumentationContext levelContext = fetchInstrumentation.beginLevel(executionContext, level, unresolvedNodes.size());
+        long startNanos = levelContext.start();
+        List<List<UnresolvedObjectResultNode>> batches = groupNodesIntoBatches(unresolvedNodes);
+        List<UnresolvedObjectResultNode> unresolvedNodesInBatchOrder = Common.flatList(batches);
+
+        CompletableFuture<List<List<Map<String, ExecutionResultNode>>>> resolvedBatches = Async2.flatMap(batches, batch -> fetchAndAnalyze(batch));
+        // all fetches of the level are issued
+        dataLoaderDispatcher.dispatch();
+        CompletableFuture<List<Map<String, ExecutionResultNode>>> resolvedLevel = levelContext.whenEnded(startNanos, Common.flatList(resolvedBatches),
+                childrenPerNode -> childrenPerNode.stream().flatMap(children -> childErrors(children.values()).stream()).collect(toList()));
+        return resolvedLevel.thenCompose(childrenPerNode -> {
+            List<UnresolvedObjectResultNode> newUnresolvedNodes = new ArrayList<>();
+            for (int i = 0; i < childrenPerNode.size(); i++) {
+                Map<String, ExecutionResultNode> children = childrenPerNode.get(i);
+                resultArena.fill(unresolvedNodesInBatchOrder.get(i), children);
+                if (wave == null) {
+                    ResultArena.collectUnresolvedNodes(children.values(), newUnresolvedNodes);
+                } else {
+                    List<UnresolvedObjectResultNode> unresolvedChildren = new ArrayList<>();
+                    ResultArena.collectUnresolvedNodes(children.values(), unresolvedChildren);
+                    wave.filled(unresolvedNodesInBatchOrder.get(i), unresolvedChildren);
+                    newUnresolvedNodes.addAll(unresolvedChildren);
+                }
+            }
+            if (wave != null) {
+                wave.deliverResolvedPatches();
+            }
+            return nextLevel(newUnresolvedNodes, level + 1, resultArena, wave);
+        });
     }
 
-    // all multizipper have the same root
-    private CompletableFuture<MultiZipper> nextStepImpl(List<MultiZipper> unresolvedNodes) {
-        Assert.assertNotEmpty(unresolvedNodes, "unresolvedNodes can't be empty");
-        ExecutionResultNode commonRoot = unresolvedNodes.get(0).getCommonRoot();
-
-        CompletableFuture<List<List<ExecutionResultNodeZipper>>> listListCF = Async2.flatMap(unresolvedNodes,
-                multiZipper -> fetchAndAnalyze(multiZipper.getZippers()));
-
-        return Common.flatList(listListCF)
-                .thenApply(zippers -> new MultiZipper(commonRoot, zippers));
-
+    // the fetch errors of the fields resolved for a node
+    private static List<GraphQLError> childErrors(Collection<ExecutionResultNode> children) {
+        List<GraphQLError> errors = new ArrayList<>();
+        for (ExecutionResultNode child : children) {
+            FetchedValueAnalysis fetchedValueAnalysis = child.getFetchedValueAnalysis();
+            if (fetchedValueAnalysis.getFetchedValue() != null) {
+                errors.addAll(fetchedValueAnalysis.getFetchedValue().getErrors());
+            }
+            errors.addAll(fetchedValueAnalysis.getErrors());
+        }
+        return errors;
     }
 
-    private List<MultiZipper> groupNodesIntoBatches(MultiZipper unresolvedZipper) {
-        Map<Map<String, List<Field>>, List<ExecutionResultNodeZipper>> zipperBySubSelection = unresolvedZipper.getZippers().stream()
-                .collect(groupingBy(executionResultNodeZipper -> executionResultNodeZipper.getCurNode().getFetchedValueAnalysis().getFieldSubSelection().getFields()));
+    private List<List<UnresolvedObjectResultNode>> groupNodesIntoBatches(List<UnresolvedObjectResultNode> unresolvedNodes) {
+        Map<BatchKey, List<UnresolvedObjectResultNode>> nodesByBatchKey = unresolvedNodes.stream()
+                .collect(groupingBy(unresolvedNode -> unresolvedNode.getFetchedValueAnalysis().getFieldSubSelection().getBatchKey()));
 
-        return zipperBySubSelection
-                .entrySet()
-                .stream()
-                .map(entry -> new MultiZipper(unresolvedZipper.getCommonRoot(), entry.getValue()))
-                .collect(Collectors.toList());
+        return new ArrayList<>(nodesByBatchKey.values());
     }
 
-    //constrain: all fieldSubSelections have the same fields
-    private CompletableFuture<List<ExecutionResultNodeZipper>> fetchAndAnalyze(List<ExecutionResultNodeZipper> unresolvedNodes) {
+    //constrain: all fieldSubSelections have the same batch key (same object type and fields)
+    // returns the new children per unresolved node
+    private CompletableFuture<List<Map<String, ExecutionResultNode>>> fetchAndAnalyze(List<UnresolvedObjectResultNode> unresolvedNodes) {
         Assert.assertTrue(unresolvedNodes.size() > 0, "unresolvedNodes can't be empty");
 
         List<FieldSubSelection> fieldSubSelections = unresolvedNodes.stream()
-                .map(zipper -> zipper.getCurNode().getFetchedValueAnalysis().getFieldSubSelection())
+                .map(unresolvedNode -> unresolvedNode.getFetchedValueAnalysis().getFieldSubSelection())
                 .collect(Collectors.toList());
         List<Object> sources = fieldSubSelections.stream().map(fieldSubSelection -> fieldSubSelection.getSource()).collect(Collectors.toList());
+        if (deferredPatches != null) {
+            List<DeferredFields> deferredFields = fieldSubSelections.get(0).getBatchKey().getDeferredFields();
+            for (UnresolvedObjectResultNode unresolvedNode : unresolvedNodes) {
+                FetchedValueAnalysis fetchedValueAnalysis = unresolvedNode.getFetchedValueAnalysis();
+                deferFields(fetchedValueAnalysis.getFieldSubSelection(), fetchedValueAnalysis.getName(), deferredFields);
+            }
+        }
 
         // each field in the subSelection has n sources as input
         List<CompletableFuture<List<FetchedValueAnalysis>>> fetchedValues = fieldSubSelections
@@ -130,38 +530,29 @@ public class CFExecutionStrategyBatching {
                         return executionInfoFactory.newExecutionStepInfoForSubField(sameFields, executionResultNode.getExecutionStepInfo());
                     }).collect(Collectors.toList());
 
-                    CompletableFuture<List<FetchedValueAnalysis>> fetchedValueAnalyzis = valueFetcher
-                            .fetchBatchedValues(sources, sameFields, newExecutionStepInfos)
-                            .thenApply(fetchValue -> analyseValues(fetchValue, name, sameFields, newExecutionStepInfos));
+                    CompletableFuture<List<FetchedValue>> fetchedValue = valueFetcher.fetchBatchedValues(sources, sameFields, newExecutionStepInfos)
+                            .thenCompose(fetchValues -> resolveLazyLists(fetchValues, name, sameFields, newExecutionStepInfos));
+                    CompletableFuture<List<FetchedValueAnalysis>> fetchedValueAnalyzis = fetchExecutors
+                            .thenApply(fetchedValue, fetchValue -> analyseValues(fetchValue, name, sameFields, newExecutionStepInfos));
                     return fetchedValueAnalyzis;
                 })
                 .collect(toList());
 
         return Async.each(fetchedValues).thenApply(fetchedValuesMatrix -> {
-            List<ExecutionResultNodeZipper> result = new ArrayList<>();
+            List<Map<String, ExecutionResultNode>> result = new ArrayList<>();
             List<List<FetchedValueAnalysis>> newChildsPerNode = Common.transposeMatrix(fetchedValuesMatrix);
 
-            for (int i = 0; i < newChildsPerNode.size(); i++) {
-                ExecutionResultNodeZipper unresolvedNodeZipper = unresolvedNodes.get(i);
-                List<FetchedValueAnalysis> fetchedValuesForNode = newChildsPerNode.get(i);
-                ExecutionResultNodeZipper resolvedZipper = resolvedZipper(unresolvedNodeZipper, fetchedValuesForNode);
-                result.add(resolvedZipper);
+            for (List<FetchedValueAnalysis> fetchedValuesForNode : newChildsPerNode) {
+                result.add(fetchedValueAnalysisToNodes(fetchedValuesForNode));
             }
             return result;
         });
     }
 
-    private ExecutionResultNodeZipper resolvedZipper(ExecutionResultNodeZipper unresolvedNodeZipper, List<FetchedValueAnalysis> fetchedValuesForNode) {
-        UnresolvedObjectResultNode unresolvedNode = (UnresolvedObjectResultNode) unresolvedNodeZipper.getCurNode();
-        Map<String, ExecutionResultNode> newChildren = fetchedValueAnalysisToNodes(fetchedValuesForNode);
-        ObjectExecutionResultNode newNode = unresolvedNode.withChildren(newChildren);
-        return unresolvedNodeZipper.withNode(newNode);
-    }
-
     private Map<String, ExecutionResultNode> fetchedValueAnalysisToNodes(List<FetchedValueAnalysis> fetchedValueAnalysisFlux) {
         Map<String, ExecutionResultNode> result = new LinkedHashMap<>();
         fetchedValueAnalysisFlux.forEach(fetchedValueAnalysis -> {
-            result.put(fetchedValueAnalysis.getName(), resultNodesCreator.createResultNode(fetchedValueAnalysis));
+            result.put(fetchedValueAnalysis.getName(), createResultNode(fetchedValueAnalysis));
         });
         return result;
     }
@@ -174,9 +565,9 @@ public class CFExecutionStrategyBatching {
                     List<Field> sameFields = entry.getValue();
                     String name = entry.getKey();
                     ExecutionStepInfo newExecutionStepInfo = executionInfoFactory.newExecutionStepInfoForSubField(sameFields, fieldSubSelection.getExecutionStepInfo());
-                    return valueFetcher
-                            .fetchValue(fieldSubSelection.getSource(), sameFields, newExecutionStepInfo)
-                            .thenApply(fetchValue -> analyseValue(fetchValue, name, sameFields, newExecutionStepInfo));
+                    CompletableFuture<FetchedValue> fetchedValue = valueFetcher.fetchValue(fieldSubSelection.getSource(), sameFields, newExecutionStepInfo)
+                            .thenCompose(fetchValue -> resolveLazyList(fetchValue, name, sameFields, newExecutionStepInfo));
+                    return fetchExecutors.thenApply(fetchedValue, fetchValue -> analyseValue(fetchValue, name, sameFields, newExecutionStepInfo));
                 })
                 .collect(toList());
 
@@ -48,6 +48,10 @@ public class Common {
         }
     }
 
+    /**
+     * @deprecated walks the result from the root for every leaf: use a {@link graphql.old.ResultAssembler} instead
+     */
+    @Deprecated
     public static void insertValueInResult(ResultLeaf resultLeaf, Map<Object, Object> result) {
         List<Object> pathList = resultLeaf.getExecutionPath();
 
@@ -0,0 +1,86 @@
+package graphql;
+
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches the {@link DataLoaderRegistry} of an execution once all fetches of a level (or of a batch with a
+ * {@link DispatchWindow}) are issued, so data fetchers using data loaders are batched over the whole level.
+ *
+ * Loads chained on the result of another load are queued when that load completes: whenever a dispatch actually loaded
+ * something, all data loaders are dispatched again once all dispatches of the round completed.
+ *
+ * Data fetchers which are called on a fetch executor queue their loads only when they run: the dispatch waits until
+ * every scheduled call returned (see {@link FetchExecutors#callDataFetcher(graphql.schema.DataFetcher, java.util.function.Supplier, DataLoaderDispatcher)}).
+ */
+public class DataLoaderDispatcher {
+
+    private final DataLoaderRegistry dataLoaderRegistry;
+    // data fetcher calls scheduled on an executor which didn't return yet
+    private final AtomicInteger scheduledCalls = new AtomicInteger();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean();
+
+    public DataLoaderDispatcher(DataLoaderRegistry dataLoaderRegistry) {
+        this.dataLoaderRegistry = dataLoaderRegistry;
+    }
+
+    /**
+     * Dispatches once all data fetcher calls scheduled so far returned.
+     */
+    public void dispatch() {
+        if (dataLoaderRegistry == null) {
+            return;
+        }
+        dispatchRequested.set(true);
+        if (scheduledCalls.get() == 0) {
+            dispatchIfRequested();
+        }
+    }
+
+    void callScheduled() {
+        scheduledCalls.incrementAndGet();
+    }
+
+    void callReturned() {
+        if (scheduledCalls.decrementAndGet() == 0) {
+            dispatchIfRequested();
+        }
+    }
+
+    private void dispatchIfRequested() {
+        if (dataLoaderRegistry != null && dispatchRequested.compareAndSet(true, false)) {
+            dispatchRound();
+        }
+    }
+
+    private void dispatchRound() {
+        List<CompletableFuture<? extends List<?>>> round = new ArrayList<>();
+        for (DataLoader<?, ?> dataLoader : dataLoaderRegistry.getDataLoaders()) {
+            round.add(dataLoader.dispatch());
+        }
+        // one sweep of the registry per round: only after all loaders of this round completed
+        CompletableFuture.allOf(round.toArray(new CompletableFuture[0])).whenComplete((done, exception) -> {
+            if (loadedAnything(round)) {
+                dispatchRound();
+            }
+        });
+    }
+
+    private static boolean loadedAnything(List<CompletableFuture<? extends List<?>>> round) {
+        for (CompletableFuture<? extends List<?>> loaded : round) {
+            if (!loaded.isCompletedExceptionally()) {
+                List<?> values = loaded.join();
+                if (values != null && !values.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,286 @@
+package graphql;
+
+import graphql.language.Argument;
+import graphql.language.BooleanValue;
+import graphql.language.Directive;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.IntValue;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.StringValue;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Splits collected fields into the fields of the initial result and the fields of the {@code @defer} fragments.
+ *
+ * The fields are collected as usual (fragments merged, {@code @skip} and {@code @include} applied) and only then
+ * classified by their AST instances: a field is deferred if every instance it was collected from is inside a
+ * deferred fragment. A field which is also selected outside of the fragment is part of the initial result, as is
+ * everything inside a deferred fragment which is itself deferred (nested fragments are delivered with the outermost
+ * one). A fragment with {@code @defer(if: false)} is not deferred.
+ */
+class DeferredFieldCollector {
+
+    static final String DEFER = "defer";
+    static final String STREAM = "stream";
+
+    private final Map<String, FragmentDefinition> fragmentsByName;
+    // null if no if argument of the document references a variable
+    private final Map<String, Object> variables;
+
+    /**
+     * @param variables the coerced variables the {@code if} arguments are evaluated with: null if none of them
+     *                  references a variable
+     */
+    DeferredFieldCollector(Map<String, FragmentDefinition> fragmentsByName, Map<String, Object> variables) {
+        this.fragmentsByName = fragmentsByName;
+        this.variables = variables;
+    }
+
+    static class Split {
+        private final Map<String, List<Field>> fields;
+        private final List<String> labels;
+        private final List<Map<String, List<Field>>> deferredFields;
+
+        private Split(Map<String, List<Field>> fields, List<String> labels, List<Map<String, List<Field>>> deferredFields) {
+            this.fields = fields;
+            this.labels = labels;
+            this.deferredFields = deferredFields;
+        }
+
+        Map<String, List<Field>> getFields() {
+            return fields;
+        }
+
+        // the labels of the deferred fragments, in the order of getDeferredFields
+        List<String> getLabels() {
+            return labels;
+        }
+
+        // the fields per deferred fragment in the order of their first field
+        List<Map<String, List<Field>>> getDeferredFields() {
+            return deferredFields;
+        }
+    }
+
+    /**
+     * @param selectionSets   the selection sets the fields were collected from
+     * @param collectedFields the collected fields
+     *
+     * @return the split: the collected fields themselves if none of them is deferred
+     */
+    Split split(List<SelectionSet> selectionSets, Map<String, List<Field>> collectedFields) {
+        Set<Field> initialFields = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Field, Selection> deferredBy = new IdentityHashMap<>();
+        for (SelectionSet selectionSet : selectionSets) {
+            classify(selectionSet, null, initialFields, deferredBy);
+        }
+        if (deferredBy.isEmpty()) {
+            return new Split(collectedFields, Collections.emptyList(), Collections.emptyList());
+        }
+
+        Map<String, List<Field>> fields = new LinkedHashMap<>();
+        Map<Selection, Map<String, List<Field>>> fieldsByFragment = new IdentityHashMap<>();
+        List<Selection> fragments = new ArrayList<>();
+        collectedFields.forEach((resultKey, sameFields) -> {
+            Selection fragment = deferredFragment(sameFields, initialFields, deferredBy);
+            if (fragment == null) {
+                fields.put(resultKey, sameFields);
+                return;
+            }
+            Map<String, List<Field>> fragmentFields = fieldsByFragment.get(fragment);
+            if (fragmentFields == null) {
+                fragmentFields = new LinkedHashMap<>();
+                fieldsByFragment.put(fragment, fragmentFields);
+                fragments.add(fragment);
+            }
+            fragmentFields.put(resultKey, sameFields);
+        });
+        if (fragments.isEmpty()) {
+            return new Split(collectedFields, Collections.emptyList(), Collections.emptyList());
+        }
+
+        List<String> labels = new ArrayList<>(fragments.size());
+        List<Map<String, List<Field>>> deferredFields = new ArrayList<>(fragments.size());
+        for (Selection fragment : fragments) {
+            labels.add(label(fragment));
+            deferredFields.add(fieldsByFragment.get(fragment));
+        }
+        return new Split(fields, labels, deferredFields);
+    }
+
+    private static Selection deferredFragment(List<Field> sameFields, Set<Field> initialFields, Map<Field, Selection> deferredBy) {
+        Selection fragment = null;
+        for (Field field : sameFields) {
+            Selection deferredFragment = deferredBy.get(field);
+            if (deferredFragment == null || initialFields.contains(field)) {
+                return null;
+            }
+            if (fragment == null) {
+                fragment = deferredFragment;
+            }
+        }
+        return fragment;
+    }
+
+    private void classify(SelectionSet selectionSet, Selection deferredFragment, Set<Field> initialFields, Map<Field, Selection> deferredBy) {
+        if (selectionSet == null) {
+            return;
+        }
+        for (Selection selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+                if (deferredFragment == null) {
+                    initialFields.add(field);
+                } else {
+                    deferredBy.putIfAbsent(field, deferredFragment);
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                Selection fragment = deferredFragment == null && isDeferred(inlineFragment.getDirectives()) ? inlineFragment : deferredFragment;
+                classify(inlineFragment.getSelectionSet(), fragment, initialFields, deferredBy);
+            } else if (selection instanceof FragmentSpread) {
+                FragmentSpread fragmentSpread = (FragmentSpread) selection;
+                FragmentDefinition fragmentDefinition = fragmentsByName.get(fragmentSpread.getName());
+                if (fragmentDefinition != null) {
+                    Selection fragment = deferredFragment == null && isDeferred(fragmentSpread.getDirectives()) ? fragmentSpread : deferredFragment;
+                    classify(fragmentDefinition.getSelectionSet(), fragment, initialFields, deferredBy);
+                }
+            }
+        }
+    }
+
+    private static String label(Selection fragment) {
+        List<Directive> directives = fragment instanceof InlineFragment
+                ? ((InlineFragment) fragment).getDirectives()
+                : ((FragmentSpread) fragment).getDirectives();
+        Value label = argument(directive(directives, DEFER), "label");
+        return label instanceof StringValue ? ((StringValue) label).getValue() : null;
+    }
+
+    /**
+     * @param field     the list field
+     * @param variables the coerced variables of the execution
+     *
+     * @return the {@code initialCount} of the {@code @stream} directive of the field (0 by default) or -1 if it is
+     * not streamed
+     */
+    static int streamInitialCount(Field field, Map<String, Object> variables) {
+        Directive stream = directive(field.getDirectives(), STREAM);
+        if (stream == null) {
+            return -1;
+        }
+        Value initialCount = argument(stream, "initialCount");
+        if (initialCount instanceof IntValue) {
+            return ((IntValue) initialCount).getValue().intValue();
+        }
+        if (initialCount instanceof VariableReference) {
+            Object value = variables.get(((VariableReference) initialCount).getName());
+            return value instanceof Number ? ((Number) value).intValue() : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * @return the label argument of the {@code @stream} directive of the field or null
+     */
+    static String streamLabel(Field field) {
+        Value label = argument(directive(field.getDirectives(), STREAM), "label");
+        return label instanceof StringValue ? ((StringValue) label).getValue() : null;
+    }
+
+    /**
+     * @return true if the selection set contains a {@code @defer} fragment which is not disabled by
+     * {@code if: false}
+     */
+    static boolean hasDeferDirectives(SelectionSet selectionSet) {
+        return hasDeferDirectives(selectionSet, directive -> !isFalse(argument(directive, "if")));
+    }
+
+    /**
+     * @return true if the selection set contains a {@code @defer} fragment whose {@code if} argument references a
+     * variable: then the deferred fields depend on the variables
+     */
+    static boolean hasVariableDeferDirectives(SelectionSet selectionSet) {
+        return hasDeferDirectives(selectionSet, directive -> argument(directive, "if") instanceof VariableReference);
+    }
+
+    private static boolean hasDeferDirectives(SelectionSet selectionSet, Predicate<Directive> matches) {
+        if (selectionSet == null) {
+            return false;
+        }
+        for (Selection selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                if (hasDeferDirectives(((Field) selection).getSelectionSet(), matches)) {
+                    return true;
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                if (hasMatchingDefer(inlineFragment.getDirectives(), matches) || hasDeferDirectives(inlineFragment.getSelectionSet(), matches)) {
+                    return true;
+                }
+            } else if (selection instanceof FragmentSpread) {
+                if (hasMatchingDefer(((FragmentSpread) selection).getDirectives(), matches)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasMatchingDefer(List<Directive> directives, Predicate<Directive> matches) {
+        Directive defer = directive(directives, DEFER);
+        return defer != null && matches.test(defer);
+    }
+
+    private boolean isDeferred(List<Directive> directives) {
+        Directive defer = directive(directives, DEFER);
+        if (defer == null) {
+            return false;
+        }
+        Value condition = argument(defer, "if");
+        if (condition instanceof VariableReference) {
+            Object value = variables == null ? null : variables.get(((VariableReference) condition).getName());
+            return !Boolean.FALSE.equals(value);
+        }
+        return !isFalse(condition);
+    }
+
+    private static boolean isFalse(Value value) {
+        return value instanceof BooleanValue && !((BooleanValue) value).isValue();
+    }
+
+    private static Directive directive(List<Directive> directives, String name) {
+        for (Directive directive : directives) {
+            if (directive.getName().equals(name)) {
+                return directive;
+            }
+        }
+        return null;
+    }
+
+    private static Value argument(Directive directive, String name) {
+        if (directive == null) {
+            return null;
+        }
+        for (Argument argument : directive.getArguments()) {
+            if (argument.getName().equals(name)) {
+                return argument.getValue();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package graphql;
+
+import graphql.language.Field;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The fields of one {@code @defer} fragment of a sub selection: resolved after the initial result and delivered
+ * as a patch (see {@link CFExecution#executeIncrementally}).
+ */
+public class DeferredFields {
+
+    private final String label;
+    // the object type and the fields of the fragment: batched like any other sub selection
+    private final BatchKey batchKey;
+
+    DeferredFields(String label, BatchKey batchKey) {
+        this.label = label;
+        this.batchKey = batchKey;
+    }
+
+    /**
+     * @return the label argument of the directive or null
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public BatchKey getBatchKey() {
+        return batchKey;
+    }
+
+    public Map<String, List<Field>> getFields() {
+        return batchKey.getFields();
+    }
+
+    @Override
+    public String toString() {
+        return "DeferredFields{" +
+                "label=" + label +
+                ", fields=" + batchKey.getFields().keySet() +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package graphql;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static graphql.Assert.assertNotNull;
+import static graphql.Assert.assertTrue;
+
+/**
+ * Configures the pipelined execution of the CF engine: instead of waiting for a whole level, the unresolved nodes
+ * created by a batch are dispatched as soon as their batch is resolved.
+ *
+ * Nodes with the same {@link BatchKey} wait up to {@code maxWait} for siblings from other parents, so they can still
+ * be fetched together. A batch is dispatched earlier once it has {@code maxBatchSize} nodes.
+ */
+public class DispatchWindow {
+
+    private final Duration maxWait;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private DispatchWindow(Duration maxWait, int maxBatchSize, ScheduledExecutorService scheduler) {
+        assertTrue(!maxWait.isNegative(), "maxWait can't be negative");
+        assertTrue(maxBatchSize > 0, "maxBatchSize must be positive");
+        this.maxWait = maxWait;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return a window which dispatches the child batches of a batch right away: only the children of the same batch are merged
+     */
+    public static DispatchWindow immediate() {
+        return new DispatchWindow(Duration.ZERO, Integer.MAX_VALUE, null);
+    }
+
+    public static DispatchWindow of(Duration maxWait, int maxBatchSize) {
+        return of(maxWait, maxBatchSize, FetchSchedulers.DEFAULT);
+    }
+
+    /**
+     * @param maxWait      how long nodes wait for siblings
+     * @param maxBatchSize the size at which a batch is dispatched without waiting any longer
+     * @param scheduler    times the dispatches after {@code maxWait}: the batches are fetched on the continuation
+     *                     executor (or else the fetch executor) of the {@link FetchExecutors}, without one on the
+     *                     common fork join pool
+     *
+     * @return the window
+     */
+    public static DispatchWindow of(Duration maxWait, int maxBatchSize, ScheduledExecutorService scheduler) {
+        return new DispatchWindow(assertNotNull(maxWait), maxBatchSize, assertNotNull(scheduler));
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+}
@@ -4,7 +4,6 @@ import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionPath;
 import graphql.execution.ExecutionStepInfo;
 import graphql.execution.ValuesResolver;
-import graphql.introspection.Introspection;
 import graphql.language.Argument;
 import graphql.language.Field;
 import graphql.schema.GraphQLFieldDefinition;
@@ -13,27 +12,35 @@ import graphql.schema.GraphQLObjectType;
 import graphql.schema.GraphQLOutputType;
 import graphql.schema.visibility.GraphqlFieldVisibility;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExecutionStepInfoFactory {
 
     private final ExecutionContext executionContext;
+    private final FieldDefinitions fieldDefinitions;
 
     ValuesResolver valuesResolver = new ValuesResolver();
+    // the variables don't change during an execution: the argument values only depend on the field and its definition
+    private final Map<Field, Map<GraphQLFieldDefinition, Map<String, Object>>> argumentValuesByField = new ConcurrentHashMap<>();
 
     public ExecutionStepInfoFactory(ExecutionContext executionContext) {
+        this(executionContext, new FieldDefinitions(executionContext.getGraphQLSchema()));
+    }
+
+    public ExecutionStepInfoFactory(ExecutionContext executionContext, FieldDefinitions fieldDefinitions) {
         this.executionContext = executionContext;
+        this.fieldDefinitions = fieldDefinitions;
     }
 
     public ExecutionStepInfo newExecutionStepInfoForSubField(List<Field> sameFields, ExecutionStepInfo parentInfo) {
         Field field = sameFields.get(0);
         GraphQLObjectType parentType = (GraphQLObjectType) parentInfo.getUnwrappedNonNullType();
-        GraphQLFieldDefinition fieldDefinition = Introspection.getFieldDef(executionContext.getGraphQLSchema(), parentType, field.getName());
+        GraphQLFieldDefinition fieldDefinition = fieldDefinitions.getFieldDefinition(parentType, field.getName());
         GraphQLOutputType fieldType = fieldDefinition.getType();
-        List<Argument> fieldArgs = field.getArguments();
-        GraphqlFieldVisibility fieldVisibility = executionContext.getGraphQLSchema().getFieldVisibility();
-        Map<String, Object> argumentValues = valuesResolver.getArgumentValues(fieldVisibility, fieldDefinition.getArguments(), fieldArgs, executionContext.getVariables());
+        Map<String, Object> argumentValues = getArgumentValues(field, fieldDefinition);
 
         ExecutionPath newPath = parentInfo.getPath().segment(mkNameForPath(sameFields));
 
@@ -61,6 +68,19 @@ public class ExecutionStepInfoFactory {
                 .build();
     }
 
+    private Map<String, Object> getArgumentValues(Field field, GraphQLFieldDefinition fieldDefinition) {
+        if (fieldDefinition.getArguments().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return argumentValuesByField
+                .computeIfAbsent(field, f -> new ConcurrentHashMap<>())
+                .computeIfAbsent(fieldDefinition, definition -> {
+                    List<Argument> fieldArgs = field.getArguments();
+                    GraphqlFieldVisibility fieldVisibility = executionContext.getGraphQLSchema().getFieldVisibility();
+                    return Collections.unmodifiableMap(valuesResolver.getArgumentValues(fieldVisibility, definition.getArguments(), fieldArgs, executionContext.getVariables()));
+                });
+    }
+
     private static String mkNameForPath(List<Field> currentField) {
         Field field = currentField.get(0);
         return field.getAlias() != null ? field.getAlias() : field.getName();
@@ -0,0 +1,146 @@
+package graphql;
+
+import graphql.execution.Async;
+import graphql.schema.DataFetcher;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The executors of the CF engine: every executor is optional, without one the work runs on the thread which completed
+ * the previous step.
+ */
+public class FetchExecutors {
+
+    public static final FetchExecutors NONE = new FetchExecutors(null, null, null);
+
+    private final Executor fetchExecutor;
+    private final Executor blockingFetchExecutor;
+    private final Executor continuationExecutor;
+
+    /**
+     * @param fetchExecutor         calls the data fetchers
+     * @param blockingFetchExecutor calls the {@link BlockingDataFetcher}s (falls back to the fetch executor)
+     * @param continuationExecutor  analyzes the fetched values and continues with the next fetches
+     */
+    public FetchExecutors(Executor fetchExecutor, Executor blockingFetchExecutor, Executor continuationExecutor) {
+        this.fetchExecutor = fetchExecutor;
+        this.blockingFetchExecutor = blockingFetchExecutor;
+        this.continuationExecutor = continuationExecutor;
+    }
+
+    public Executor getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    public Executor getBlockingFetchExecutor() {
+        return blockingFetchExecutor;
+    }
+
+    public Executor getContinuationExecutor() {
+        return continuationExecutor;
+    }
+
+    /**
+     * @return the executor the work started by a timer thread runs on: the continuation executor, else the fetch
+     * executor, else the common fork join pool, so a timer thread never continues the execution itself
+     */
+    public Executor getTimerContinuationExecutor() {
+        if (continuationExecutor != null) {
+            return continuationExecutor;
+        }
+        if (fetchExecutor != null) {
+            return fetchExecutor;
+        }
+        return ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Calls the data fetcher on the executor for it: a rejected call completes the result exceptionally.
+     *
+     * @param dataFetcher the data fetcher which is called
+     * @param call        calls the data fetcher
+     * @param <T>         the type of the result
+     *
+     * @return the result of the call
+     */
+    public <T> CompletableFuture<T> callDataFetcher(DataFetcher<?> dataFetcher, Supplier<CompletableFuture<T>> call) {
+        return callDataFetcher(dataFetcher, call, null);
+    }
+
+    /**
+     * Like {@link #callDataFetcher(DataFetcher, Supplier)}, but a call scheduled on an executor holds back the
+     * dispatch of the data loaders until it returned: the loads of the data fetcher are queued by then.
+     *
+     * @param dataFetcher          the data fetcher which is called
+     * @param call                 calls the data fetcher
+     * @param dataLoaderDispatcher the dispatcher of the execution or null
+     * @param <T>                  the type of the result
+     *
+     * @return the result of the call
+     */
+    public <T> CompletableFuture<T> callDataFetcher(DataFetcher<?> dataFetcher, Supplier<CompletableFuture<T>> call, DataLoaderDispatcher dataLoaderDispatcher) {
+        Executor executor = executorFor(dataFetcher);
+        if (executor == null) {
+            return call.get();
+        }
+        return callDataFetcher(executor, call, dataLoaderDispatcher);
+    }
+
+    /**
+     * Like {@link #callDataFetcher(DataFetcher, Supplier, DataLoaderDispatcher)}, but never on the calling thread: without
+     * an executor for the data fetcher it is called on the common fork join pool. Used by timer threads.
+     *
+     * @param dataFetcher          the data fetcher which is called
+     * @param call                 calls the data fetcher
+     * @param dataLoaderDispatcher the dispatcher of the execution or null
+     * @param <T>                  the type of the result
+     *
+     * @return the result of the call
+     */
+    public <T> CompletableFuture<T> callDataFetcherAsync(DataFetcher<?> dataFetcher, Supplier<CompletableFuture<T>> call, DataLoaderDispatcher dataLoaderDispatcher) {
+        Executor executor = executorFor(dataFetcher);
+        return callDataFetcher(executor == null ? ForkJoinPool.commonPool() : executor, call, dataLoaderDispatcher);
+    }
+
+    private Executor executorFor(DataFetcher<?> dataFetcher) {
+        if (dataFetcher instanceof BlockingDataFetcher && blockingFetchExecutor != null) {
+            return blockingFetchExecutor;
+        }
+        return fetchExecutor;
+    }
+
+    private static <T> CompletableFuture<T> callDataFetcher(Executor executor, Supplier<CompletableFuture<T>> call, DataLoaderDispatcher dataLoaderDispatcher) {
+        if (dataLoaderDispatcher == null) {
+            try {
+                return CompletableFuture.supplyAsync(call, executor).thenCompose(Function.identity());
+            } catch (RejectedExecutionException e) {
+                return Async.exceptionallyCompletedFuture(e);
+            }
+        }
+        dataLoaderDispatcher.callScheduled();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.get();
+                } finally {
+                    dataLoaderDispatcher.callReturned();
+                }
+            }, executor).thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            dataLoaderDispatcher.callReturned();
+            return Async.exceptionallyCompletedFuture(e);
+        }
+    }
+
+    public <T, U> CompletableFuture<U> thenApply(CompletableFuture<T> future, Function<? super T, ? extends U> continuation) {
+        if (continuationExecutor == null) {
+            return future.thenApply(continuation);
+        }
+        return future.thenApplyAsync(continuation, continuationExecutor);
+    }
+}
@@ -0,0 +1,47 @@
+package graphql;
+
+import graphql.execution.ExecutionContext;
+import graphql.execution.ExecutionStepInfo;
+import graphql.language.Field;
+
+import java.util.List;
+
+/**
+ * Callbacks around the fetching of the CF engine: every {@code begin} method returns the context which is called
+ * once the operation, level, batch or field is done.
+ *
+ * A level is one round of batches (the root fields are level 1), a batch is one field fetched for all sources with
+ * the same {@link BatchKey} and a field is the fetch of one field for one source (batched data fetchers are only
+ * reported as batch). With a {@link DispatchWindow} there are no levels below the root fields: only level 1 is reported.
+ *
+ * Implementations are called concurrently and should not block. The default methods return
+ * {@link FetchInstrumentationContext#NOOP}, for which the engine doesn't even measure the latency.
+ */
+public interface FetchInstrumentation {
+
+    FetchInstrumentation NOOP = new FetchInstrumentation() {
+    };
+
+    default FetchInstrumentationContext beginOperation(ExecutionContext executionContext) {
+        return FetchInstrumentationContext.NOOP;
+    }
+
+    default FetchInstrumentationContext beginLevel(ExecutionContext executionContext, int level, int nodeCount) {
+        return FetchInstrumentationContext.NOOP;
+    }
+
+    /**
+     * @param executionContext   the execution context
+     * @param sameFields         the merged fields of the batch
+     * @param executionStepInfos one step info per source: the size of the batch
+     *
+     * @return the context for the end of the batch
+     */
+    default FetchInstrumentationContext beginBatch(ExecutionContext executionContext, List<Field> sameFields, List<ExecutionStepInfo> executionStepInfos) {
+        return FetchInstrumentationContext.NOOP;
+    }
+
+    default FetchInstrumentationContext beginField(ExecutionContext executionContext, ExecutionStepInfo executionStepInfo) {
+        return FetchInstrumentationContext.NOOP;
+    }
+}
@@ -0,0 +1,56 @@
+package graphql;
+
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Returned by the {@code begin} methods of {@link FetchInstrumentation}.
+ */
+public interface FetchInstrumentationContext {
+
+    FetchInstrumentationContext NOOP = (latencyNanos, errors, exception) -> {
+    };
+
+    /**
+     * @param latencyNanos the time since the begin callback
+     * @param errors       the errors of the operation, level, batch or field
+     * @param exception    the exception if it failed as a whole, otherwise null
+     */
+    void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception);
+
+    /**
+     * @return the start time to pass to {@link #whenEnded}: only measured if this context is not {@link #NOOP}
+     */
+    default long start() {
+        return this == NOOP ? 0L : System.nanoTime();
+    }
+
+    /**
+     * Calls {@link #onEnd} when the future completes. An exception thrown by {@code getErrors} or {@link #onEnd} is
+     * logged: the instrumentation never changes the result.
+     *
+     * @param startNanos the result of {@link #start()}
+     * @param future     the future to watch
+     * @param getErrors  extracts the errors from the result
+     * @param <T>        the type of the result
+     *
+     * @return the future to continue with
+     */
+    default <T> CompletableFuture<T> whenEnded(long startNanos, CompletableFuture<T> future, Function<T, List<GraphQLError>> getErrors) {
+        if (this == NOOP) {
+            return future;
+        }
+        return future.whenComplete((result, exception) -> {
+            try {
+                List<GraphQLError> errors = exception == null ? getErrors.apply(result) : Collections.emptyList();
+                onEnd(System.nanoTime() - startNanos, errors, exception);
+            } catch (RuntimeException e) {
+                LoggerFactory.getLogger(FetchInstrumentationContext.class).warn("fetch instrumentation failed", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+package graphql;
+
+import graphql.schema.GraphQLFieldDefinition;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The memoized fetches of one execution (see {@link FetchMemoization}): the raw fetched values keyed by source,
+ * field definition and arguments.
+ */
+class FetchMemo {
+
+    private final Function<Object, Object> entityKey;
+    private final ConcurrentMap<Key, CompletableFuture<Object>> fetches = new ConcurrentHashMap<>();
+
+    FetchMemo(Function<Object, Object> entityKey) {
+        this.entityKey = entityKey;
+    }
+
+    Key key(Object source, GraphQLFieldDefinition fieldDefinition, Map<String, Object> arguments) {
+        Object sourceKey = entityKey == null ? null : entityKey.apply(source);
+        if (sourceKey == null) {
+            sourceKey = new IdentityKey(source);
+        }
+        return new Key(sourceKey, fieldDefinition, arguments);
+    }
+
+    /**
+     * @return the memoized fetch or the new one
+     */
+    CompletableFuture<Object> fetch(Key key, Supplier<CompletableFuture<Object>> fetch) {
+        CompletableFuture<Object> memoized = new CompletableFuture<>();
+        CompletableFuture<Object> existing = putIfAbsent(key, memoized);
+        if (existing != null) {
+            return existing;
+        }
+        fetch.get().whenComplete((value, throwable) -> {
+            if (throwable != null) {
+                memoized.completeExceptionally(throwable);
+            } else {
+                memoized.complete(value);
+            }
+        });
+        return memoized;
+    }
+
+    /**
+     * @return the memoized fetch or null if the given one is memoized now: the caller must complete it
+     */
+    CompletableFuture<Object> putIfAbsent(Key key, CompletableFuture<Object> fetch) {
+        return fetches.putIfAbsent(key, fetch);
+    }
+
+    static class Key {
+        private final Object sourceKey;
+        private final GraphQLFieldDefinition fieldDefinition;
+        private final Map<String, Object> arguments;
+        private final int hashCode;
+
+        private Key(Object sourceKey, GraphQLFieldDefinition fieldDefinition, Map<String, Object> arguments) {
+            this.sourceKey = sourceKey;
+            this.fieldDefinition = fieldDefinition;
+            this.arguments = arguments;
+            this.hashCode = Objects.hash(sourceKey, System.identityHashCode(fieldDefinition), arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return fieldDefinition == key.fieldDefinition &&
+                    sourceKey.equals(key.sourceKey) &&
+                    Objects.equals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class IdentityKey {
+        private final Object source;
+
+        private IdentityKey(Object source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IdentityKey && ((IdentityKey) o).source == source;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(source);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package graphql;
+
+import java.util.function.Function;
+
+import static graphql.Assert.assertNotNull;
+
+/**
+ * Opts the CF engine into memoizing the fetches of an execution: a field is fetched once per source and arguments,
+ * every other fetch of it (through an alias or another path to the same entity) shares the first fetch, even while it
+ * is still in flight. Batched fetches only contain the sources which are not fetched yet.
+ *
+ * Only use it when the data fetchers only depend on the source, the field and the arguments (and not e.g. on the
+ * selection set or the path).
+ */
+public class FetchMemoization {
+
+    private final Function<Object, Object> entityKey;
+
+    private FetchMemoization(Function<Object, Object> entityKey) {
+        this.entityKey = entityKey;
+    }
+
+    /**
+     * @return memoizes by the identity of the sources
+     */
+    public static FetchMemoization bySourceIdentity() {
+        return new FetchMemoization(null);
+    }
+
+    /**
+     * @param entityKey the key of the entity a source represents (e.g. its id), so equal entities which are
+     *                  different objects are fetched once: sources with a null key are memoized by identity
+     *
+     * @return memoizes by the entity key of the sources
+     */
+    public static FetchMemoization byEntityKey(Function<Object, Object> entityKey) {
+        return new FetchMemoization(assertNotNull(entityKey));
+    }
+
+    FetchMemo newFetchMemo() {
+        return new FetchMemo(entityKey);
+    }
+}
@@ -0,0 +1,21 @@
+package graphql;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * The scheduler of the fetch timeouts, hedges and {@link DispatchWindow}s when none is configured: one daemon thread
+ * shared by all of them, which only times the work. The fetches themselves run on the fetch executors.
+ */
+class FetchSchedulers {
+
+    static final ScheduledExecutorService DEFAULT = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("graphql-fetch-scheduler-%d")
+            .build());
+
+    private FetchSchedulers() {
+    }
+}
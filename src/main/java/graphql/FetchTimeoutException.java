@@ -0,0 +1,29 @@
+package graphql;
+
+import graphql.execution.ExecutionPath;
+
+import java.time.Duration;
+
+/**
+ * A fetch which did not complete within its {@link FetchTimeouts timeout}: reported as an
+ * {@link ExceptionWhileDataFetching} error of the field.
+ */
+public class FetchTimeoutException extends RuntimeException {
+
+    private final ExecutionPath path;
+    private final Duration timeout;
+
+    public FetchTimeoutException(ExecutionPath path, Duration timeout) {
+        super(String.format("fetching '%s' timed out after %d ms", path, timeout.toMillis()));
+        this.path = path;
+        this.timeout = timeout;
+    }
+
+    public ExecutionPath getPath() {
+        return path;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,144 @@
+package graphql;
+
+import graphql.execution.ExecutionPath;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static graphql.Assert.assertNotNull;
+import static graphql.Assert.assertTrue;
+
+/**
+ * The deadlines of the fetches of the CF engine: a fetch which is not completed in time completes with a
+ * {@link FetchTimeoutException}, so a hung backend call can't keep the execution open forever. The data fetcher
+ * itself is not interrupted.
+ *
+ * The field timeout applies to every call of a {@link graphql.schema.DataFetcher}, the batch timeout to every call of
+ * a {@link BatchedDataFetcher}. Both can be overridden per field with {@link Builder#timeout(String, String, Duration)}.
+ */
+public class FetchTimeouts {
+
+    public static final FetchTimeouts NONE = newFetchTimeouts().build();
+
+    private final Duration fieldTimeout;
+    private final Duration batchTimeout;
+    private final Map<String, Duration> timeoutsByField;
+    private final ScheduledExecutorService scheduler;
+
+    private FetchTimeouts(Builder builder) {
+        this.fieldTimeout = builder.fieldTimeout;
+        this.batchTimeout = builder.batchTimeout;
+        this.timeoutsByField = new LinkedHashMap<>(builder.timeoutsByField);
+        this.scheduler = builder.scheduler;
+    }
+
+    public static Builder newFetchTimeouts() {
+        return new Builder();
+    }
+
+    /**
+     * @param typeName  the object type of the field
+     * @param fieldName the name of the field
+     * @param batched   true for a call of a {@link BatchedDataFetcher}
+     *
+     * @return the timeout of the fetch or null if it has none
+     */
+    public Duration getTimeout(String typeName, String fieldName, boolean batched) {
+        Duration timeout = timeoutsByField.isEmpty() ? null : timeoutsByField.get(typeName + "." + fieldName);
+        if (timeout != null) {
+            return timeout;
+        }
+        return batched ? batchTimeout : fieldTimeout;
+    }
+
+    /**
+     * Completes the fetch with a {@link FetchTimeoutException} when it is not completed after the timeout.
+     *
+     * @param fetch          the fetch
+     * @param path           the path of the fetched field, used for the error
+     * @param timeout        the timeout, null means none
+     * @param expiryExecutor completes the expired fetch: its dependent stages run there and not on the scheduler
+     * @param <T>            the type of the fetched value
+     *
+     * @return the fetch
+     */
+    <T> CompletableFuture<T> withTimeout(CompletableFuture<T> fetch, ExecutionPath path, Duration timeout, Executor expiryExecutor) {
+        if (timeout == null || fetch.isDone()) {
+            return fetch;
+        }
+        ScheduledFuture<?> expiry = scheduler.schedule(() -> expire(fetch, path, timeout, expiryExecutor),
+                timeout.toNanos(), TimeUnit.NANOSECONDS);
+        fetch.whenComplete((value, throwable) -> expiry.cancel(false));
+        return fetch;
+    }
+
+    private static void expire(CompletableFuture<?> fetch, ExecutionPath path, Duration timeout, Executor expiryExecutor) {
+        FetchTimeoutException exception = new FetchTimeoutException(path, timeout);
+        try {
+            expiryExecutor.execute(() -> fetch.completeExceptionally(exception));
+        } catch (RejectedExecutionException e) {
+            // the execution can't continue anywhere else: better on the scheduler than never
+            fetch.completeExceptionally(exception);
+        }
+    }
+
+    public static final class Builder {
+        private Duration fieldTimeout;
+        private Duration batchTimeout;
+        private final Map<String, Duration> timeoutsByField = new LinkedHashMap<>();
+        private ScheduledExecutorService scheduler = FetchSchedulers.DEFAULT;
+
+        private Builder() {
+        }
+
+        public Builder fieldTimeout(Duration val) {
+            fieldTimeout = positive(val);
+            return this;
+        }
+
+        public Builder batchTimeout(Duration val) {
+            batchTimeout = positive(val);
+            return this;
+        }
+
+        /**
+         * @param typeName  the object type of the field
+         * @param fieldName the name of the field
+         * @param val       the timeout of the single and batched fetches of the field
+         *
+         * @return this builder
+         */
+        public Builder timeout(String typeName, String fieldName, Duration val) {
+            timeoutsByField.put(assertNotNull(typeName) + "." + assertNotNull(fieldName), positive(val));
+            return this;
+        }
+
+        /**
+         * @param val times the fetches: an expired fetch is completed on the continuation executor, else on the
+         *            fetch executor, else on the common fork join pool
+         *
+         * @return this builder
+         */
+        public Builder scheduler(ScheduledExecutorService val) {
+            scheduler = assertNotNull(val);
+            return this;
+        }
+
+        public FetchTimeouts build() {
+            return new FetchTimeouts(this);
+        }
+
+        private static Duration positive(Duration timeout) {
+            assertNotNull(timeout);
+            assertTrue(!timeout.isNegative() && !timeout.isZero(), "a timeout must be positive");
+            return timeout;
+        }
+    }
+}
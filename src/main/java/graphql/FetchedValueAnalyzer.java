@@ -17,10 +17,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import static graphql.FetchedValueAnalysis.FetchedValueType.ENUM;
 import static graphql.FetchedValueAnalysis.FetchedValueType.LIST;
@@ -29,7 +30,6 @@ import static graphql.FetchedValueAnalysis.FetchedValueType.SCALAR;
 import static graphql.FetchedValueAnalysis.newFetchedValueAnalysis;
 import static graphql.execution.FieldCollectorParameters.newParameters;
 import static graphql.schema.GraphQLTypeUtil.isList;
-import static java.util.Collections.singletonList;
 
 public class FetchedValueAnalyzer {
 
@@ -37,12 +37,29 @@ public class FetchedValueAnalyzer {
     ResolveType resolveType;
     FieldCollector fieldCollector = new FieldCollector();
     ExecutionStepInfoFactory executionInfoFactory;
+    BatchKeys batchKeys;
 
 
     public FetchedValueAnalyzer(ExecutionContext executionContext) {
         this.executionContext = executionContext;
         this.resolveType = new ResolveType(executionContext);
         this.executionInfoFactory = new ExecutionStepInfoFactory(executionContext);
+        this.batchKeys = new BatchKeys();
+    }
+
+    public FetchedValueAnalyzer(ExecutionContext executionContext, PreparedOperation preparedOperation) {
+        this(executionContext, preparedOperation, false);
+    }
+
+    /**
+     * @param incremental the fields of {@code @defer} fragments are not part of the sub selections, but
+     *                    {@link BatchKey#getDeferredFields() deferred}
+     */
+    public FetchedValueAnalyzer(ExecutionContext executionContext, PreparedOperation preparedOperation, boolean incremental) {
+        this.executionContext = executionContext;
+        this.resolveType = new ResolveType(executionContext);
+        this.executionInfoFactory = new ExecutionStepInfoFactory(executionContext, preparedOperation.getFieldDefinitions());
+        this.batchKeys = incremental ? preparedOperation.getIncrementalBatchKeys(executionContext.getVariables()) : preparedOperation.getBatchKeys();
     }
 
     private static final Logger log = LoggerFactory.getLogger(FetchedValueAnalyzer.class);
@@ -58,7 +75,7 @@ public class FetchedValueAnalyzer {
 
         FetchedValueAnalysis result = null;
         if (isList(fieldType)) {
-            result = analyzeList(toAnalyze, name, executionInfo);
+            result = analyzeList(toAnalyze, name, field, executionInfo);
         } else if (fieldType instanceof GraphQLScalarType) {
             result = analyzeScalarValue(toAnalyze, name, (GraphQLScalarType) fieldType, executionInfo);
         } else if (fieldType instanceof GraphQLEnumType) {
@@ -82,7 +99,7 @@ public class FetchedValueAnalyzer {
                         .build();
             }
             resolvedObjectType = resolveType.resolveType(field.get(0), toAnalyze, executionInfo.getArguments(), fieldType);
-            return analyzeObject(toAnalyze, name, resolvedObjectType, executionInfo);
+            return analyzeObject(toAnalyze, name, resolvedObjectType, field, executionInfo);
         } catch (UnresolvedTypeException ex) {
             return handleUnresolvedTypeProblem(name, executionInfo, ex);
         }
@@ -98,7 +115,8 @@ public class FetchedValueAnalyzer {
                 .build();
     }
 
-    private FetchedValueAnalysis analyzeList(Object toAnalyze, String name, ExecutionStepInfo executionInfo) {
+    @SuppressWarnings("unchecked")
+    private FetchedValueAnalysis analyzeList(Object toAnalyze, String name, List<Field> field, ExecutionStepInfo executionInfo) {
         if (toAnalyze == null) {
             return newFetchedValueAnalysis(LIST)
                     .name(name)
@@ -106,9 +124,19 @@ public class FetchedValueAnalyzer {
                     .build();
         }
 
-        if (toAnalyze.getClass().isArray() || toAnalyze instanceof Iterable) {
+        if (toAnalyze.getClass().isArray()) {
             Collection<Object> collection = FpKit.toCollection(toAnalyze);
-            return analyzeIterable(collection, name, executionInfo);
+            return analyzeIterator(collection.iterator(), collection.size(), name, field, executionInfo);
+        } else if (toAnalyze instanceof Iterable) {
+            int sizeHint = toAnalyze instanceof Collection ? ((Collection) toAnalyze).size() : 10;
+            return analyzeIterator(((Iterable<Object>) toAnalyze).iterator(), sizeHint, name, field, executionInfo);
+        } else if (toAnalyze instanceof Iterator) {
+            // lazy list values of a field are pulled in chunks before (see ListChunks), these are nested lists
+            return analyzeIterator((Iterator<Object>) toAnalyze, 10, name, field, executionInfo);
+        } else if (toAnalyze instanceof Stream) {
+            try (Stream<Object> stream = (Stream<Object>) toAnalyze) {
+                return analyzeIterator(stream.iterator(), 10, name, field, executionInfo);
+            }
         } else {
             TypeMismatchError error = new TypeMismatchError(executionInfo.getPath(), executionInfo.getType());
             return newFetchedValueAnalysis(LIST)
@@ -121,14 +149,15 @@ public class FetchedValueAnalyzer {
     }
 
 
-    private FetchedValueAnalysis analyzeIterable(Iterable<Object> iterableValues, String name, ExecutionStepInfo executionInfo) {
+    // the elements are analyzed while iterating: iterables are not copied into a collection first
+    private FetchedValueAnalysis analyzeIterator(Iterator<Object> values, int sizeHint, String name, List<Field> field, ExecutionStepInfo executionInfo) {
 
-        Collection<Object> values = FpKit.toCollection(iterableValues);
-        List<FetchedValueAnalysis> children = new ArrayList<>();
+        List<FetchedValueAnalysis> children = new ArrayList<>(sizeHint);
         int index = 0;
-        for (Object item : values) {
+        while (values.hasNext()) {
+            Object item = values.next();
             ExecutionStepInfo executionInfoForListElement = executionInfoFactory.newExecutionStepInfoForListElement(executionInfo, index);
-            children.add(analyzeFetchedValue(item, name, Arrays.asList(executionInfo.getField()), executionInfoForListElement));
+            children.add(analyzeFetchedValue(item, name, field, executionInfoForListElement));
             index++;
         }
         return newFetchedValueAnalysis(LIST)
@@ -200,15 +229,10 @@ public class FetchedValueAnalyzer {
                 .build();
     }
 
-    private FetchedValueAnalysis analyzeObject(Object fetchedValue, String name, GraphQLObjectType resolvedObjectType, ExecutionStepInfo executionInfo) {
+    private FetchedValueAnalysis analyzeObject(Object fetchedValue, String name, GraphQLObjectType resolvedObjectType, List<Field> field, ExecutionStepInfo executionInfo) {
 
-        FieldCollectorParameters collectorParameters = newParameters()
-                .schema(executionContext.getGraphQLSchema())
-                .objectType(resolvedObjectType)
-                .fragments(executionContext.getFragmentsByName())
-                .variables(executionContext.getVariables())
-                .build();
-        Map<String, List<Field>> subFields = fieldCollector.collectFields(collectorParameters, singletonList(executionInfo.getField()));
+        BatchKey batchKey = batchKeys.getBatchKey(resolvedObjectType, field, () -> collectSubFields(resolvedObjectType, field));
+        Map<String, List<Field>> subFields = batchKey.getFields();
 
         // it is not really a new step but rather a refinement
         ExecutionStepInfo newExecutionStepInfoWithResolvedType = executionInfo.changeTypeWithPreservedNonNull(resolvedObjectType);
@@ -217,6 +241,7 @@ public class FetchedValueAnalyzer {
         fieldSubSelection.setSource(fetchedValue);
         fieldSubSelection.setExecutionStepInfo(newExecutionStepInfoWithResolvedType);
         fieldSubSelection.setFields(subFields);
+        fieldSubSelection.setBatchKey(batchKey);
 
 
         FetchedValueAnalysis result = newFetchedValueAnalysis(OBJECT)
@@ -227,4 +252,14 @@ public class FetchedValueAnalyzer {
         result.setExecutionStepInfo(newExecutionStepInfoWithResolvedType);
         return result;
     }
+
+    private Map<String, List<Field>> collectSubFields(GraphQLObjectType resolvedObjectType, List<Field> field) {
+        FieldCollectorParameters collectorParameters = newParameters()
+                .schema(executionContext.getGraphQLSchema())
+                .objectType(resolvedObjectType)
+                .fragments(executionContext.getFragmentsByName())
+                .variables(executionContext.getVariables())
+                .build();
+        return fieldCollector.collectFields(collectorParameters, field);
+    }
 }
@@ -0,0 +1,42 @@
+package graphql;
+
+import graphql.schema.GraphQLFieldDefinition;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * A cache of fetched field values which is shared by executions: the CF engine consults it before calling the
+ * {@link graphql.schema.DataFetcher} of a cached field. Fields with a {@link BatchedDataFetcher} are not cached.
+ *
+ * See {@link InMemoryFieldCache} for the default implementation.
+ */
+public interface FieldCache {
+
+    /**
+     * @param typeName        the object type of the field
+     * @param fieldDefinition the field
+     *
+     * @return how long a fetched value of the field can be served or null if the field is not cached
+     */
+    Duration getTtl(String typeName, GraphQLFieldDefinition fieldDefinition);
+
+    /**
+     * @param typeName        the object type of the field
+     * @param fieldDefinition the field
+     * @param source          the source of the fetch
+     * @param arguments       the resolved arguments of the fetch
+     * @param ttl             the ttl of the field
+     * @param fetch           fetches the value: only called on a miss
+     *
+     * @return the cached or the newly fetched value
+     */
+    CompletableFuture<Object> get(String typeName,
+                                  GraphQLFieldDefinition fieldDefinition,
+                                  Object source,
+                                  Map<String, Object> arguments,
+                                  Duration ttl,
+                                  Supplier<CompletableFuture<Object>> fetch);
+}
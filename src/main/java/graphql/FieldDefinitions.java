@@ -0,0 +1,28 @@
+package graphql;
+
+import graphql.introspection.Introspection;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the lookup of field definitions (including the introspection fields) for a schema.
+ */
+public class FieldDefinitions {
+
+    private final GraphQLSchema graphQLSchema;
+    private final Map<GraphQLObjectType, Map<String, GraphQLFieldDefinition>> fieldDefinitionsByType = new ConcurrentHashMap<>();
+
+    public FieldDefinitions(GraphQLSchema graphQLSchema) {
+        this.graphQLSchema = graphQLSchema;
+    }
+
+    public GraphQLFieldDefinition getFieldDefinition(GraphQLObjectType parentType, String fieldName) {
+        return fieldDefinitionsByType
+                .computeIfAbsent(parentType, type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(fieldName, name -> Introspection.getFieldDef(graphQLSchema, parentType, name));
+    }
+}
@@ -18,6 +18,8 @@ public class FieldSubSelection {
     // the type of this must be objectType
     private ExecutionStepInfo executionInfo;
     private Map<String, List<Field>> fields = new LinkedHashMap<>();
+    // not available for the root sub selection
+    private BatchKey batchKey;
 
     public Object getSource() {
         return source;
@@ -43,6 +45,14 @@ public class FieldSubSelection {
         this.executionInfo = executionInfo;
     }
 
+    public BatchKey getBatchKey() {
+        return batchKey;
+    }
+
+    public void setBatchKey(BatchKey batchKey) {
+        this.batchKey = batchKey;
+    }
+
     @Override
     public String toString() {
         return "FieldSubSelection{" +
@@ -0,0 +1,176 @@
+package graphql;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static graphql.Assert.assertNotNull;
+import static graphql.Assert.assertTrue;
+
+/**
+ * Hedges the fetches of {@link IdempotentDataFetcher}s: when a fetch takes longer than a percentile of the recent
+ * latencies of the field, a second attempt is started and the first successful answer is used. A slow replica then
+ * only costs the percentile instead of its full latency.
+ *
+ * The latencies are kept per field in the policy, so one instance should be shared by all executions. Until a field
+ * has {@code minSamples} latencies it is not hedged.
+ */
+public class HedgePolicy {
+
+    private static final int SAMPLE_COUNT = 256;
+
+    private final double percentile;
+    private final Duration minDelay;
+    private final int minSamples;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, LatencySamples> latenciesByField = new ConcurrentHashMap<>();
+
+    private HedgePolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.minDelay = builder.minDelay;
+        this.minSamples = builder.minSamples;
+        this.scheduler = builder.scheduler;
+    }
+
+    public static Builder newHedgePolicy() {
+        return new Builder();
+    }
+
+    /**
+     * @param typeName  the object type of the field
+     * @param fieldName the name of the field
+     *
+     * @return the delay after which a fetch of the field is hedged or null if it has not enough latencies yet
+     */
+    public Duration getHedgeDelay(String typeName, String fieldName) {
+        LatencySamples latencies = latenciesByField.get(typeName + "." + fieldName);
+        long delayNanos = latencies == null ? -1 : latencies.percentile(percentile, minSamples);
+        return delayNanos < 0 ? null : Duration.ofNanos(Math.max(delayNanos, minDelay.toNanos()));
+    }
+
+    /**
+     * @param attempt      starts the first attempt
+     * @param hedgeAttempt starts the second attempt: called by the scheduler, so it must hand the fetch to an executor
+     */
+    <T> CompletableFuture<T> hedge(String typeName, String fieldName, Supplier<CompletableFuture<T>> attempt, Supplier<CompletableFuture<T>> hedgeAttempt) {
+        LatencySamples latencies = latenciesByField.computeIfAbsent(typeName + "." + fieldName, key -> new LatencySamples());
+        Duration hedgeDelay = getHedgeDelay(typeName, fieldName);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger runningAttempts = new AtomicInteger(1);
+        startAttempt(attempt, latencies, runningAttempts, result);
+        if (hedgeDelay != null && !result.isDone()) {
+            ScheduledFuture<?> hedge = scheduler.schedule(() -> {
+                if (!result.isDone()) {
+                    runningAttempts.incrementAndGet();
+                    startAttempt(hedgeAttempt, latencies, runningAttempts, result);
+                }
+            }, hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+            result.whenComplete((value, throwable) -> hedge.cancel(false));
+        }
+        return result;
+    }
+
+    private <T> void startAttempt(Supplier<CompletableFuture<T>> attempt, LatencySamples latencies, AtomicInteger runningAttempts, CompletableFuture<T> result) {
+        long startNanos = System.nanoTime();
+        attempt.get().whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                latencies.record(System.nanoTime() - startNanos);
+                result.complete(value);
+            } else if (runningAttempts.decrementAndGet() == 0) {
+                // while the other attempt is running it can still answer: only the failure of the last attempt counts
+                result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    /**
+     * The last {@link #SAMPLE_COUNT} latencies of a field in a ring buffer. The percentile is sorted lazily and
+     * reused until enough new latencies are recorded.
+     */
+    private static class LatencySamples {
+        private final long[] samples = new long[SAMPLE_COUNT];
+        private int count;
+        private int recordedSincePercentile;
+        private long percentileNanos = -1;
+
+        synchronized void record(long latencyNanos) {
+            samples[count % SAMPLE_COUNT] = latencyNanos;
+            count++;
+            recordedSincePercentile++;
+        }
+
+        synchronized long percentile(double percentile, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            if (percentileNanos < 0 || recordedSincePercentile >= SAMPLE_COUNT / 8) {
+                long[] sorted = Arrays.copyOf(samples, Math.min(count, SAMPLE_COUNT));
+                Arrays.sort(sorted);
+                int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+                percentileNanos = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+                recordedSincePercentile = 0;
+            }
+            return percentileNanos;
+        }
+    }
+
+    public static final class Builder {
+        private double percentile = 95;
+        private Duration minDelay = Duration.ofMillis(1);
+        private int minSamples = 20;
+        private ScheduledExecutorService scheduler = FetchSchedulers.DEFAULT;
+
+        private Builder() {
+        }
+
+        /**
+         * @param val the percentile of the recent latencies after which a fetch is hedged, e.g. 95
+         *
+         * @return this builder
+         */
+        public Builder percentile(double val) {
+            assertTrue(val > 0 && val <= 100, "percentile must be in (0, 100]");
+            percentile = val;
+            return this;
+        }
+
+        /**
+         * @param val the minimal delay of a hedge, so fast fields are not fetched twice because of jitter
+         *
+         * @return this builder
+         */
+        public Builder minDelay(Duration val) {
+            minDelay = assertNotNull(val);
+            return this;
+        }
+
+        public Builder minSamples(int val) {
+            assertTrue(val > 0, "minSamples must be positive");
+            minSamples = val;
+            return this;
+        }
+
+        /**
+         * @param val times the hedges: the data fetcher of a hedge is called on the fetch executor (or the common fork join
+         *            pool), never on the scheduler
+         *
+         * @return this builder
+         */
+        public Builder scheduler(ScheduledExecutorService val) {
+            scheduler = assertNotNull(val);
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package graphql;
+
+import graphql.BlockingDataFetcher.BlockingIdempotentBatchedDataFetcher;
+import graphql.BlockingDataFetcher.BlockingIdempotentDataFetcher;
+import graphql.schema.DataFetcher;
+
+/**
+ * Marks a data fetcher which can be called twice for the same field without side effects: only these fetchers are
+ * hedged by a {@link HedgePolicy}.
+ *
+ * {@link BatchedDataFetcher}s can be marked too: {@link #idempotent(DataFetcher)} keeps them batched, and it keeps a
+ * {@link BlockingDataFetcher} blocking.
+ *
+ * @param <T> the type of the fetched value
+ */
+public interface IdempotentDataFetcher<T> extends DataFetcher<T> {
+
+    @SuppressWarnings("unchecked")
+    static <T> IdempotentDataFetcher<T> idempotent(DataFetcher<T> dataFetcher) {
+        if (dataFetcher instanceof IdempotentDataFetcher) {
+            return (IdempotentDataFetcher<T>) dataFetcher;
+        }
+        boolean blocking = dataFetcher instanceof BlockingDataFetcher;
+        if (dataFetcher instanceof BatchedDataFetcher) {
+            BatchedDataFetcher batched = (BatchedDataFetcher) dataFetcher;
+            IdempotentDataFetcher<?> idempotentBatched = blocking
+                    ? (BlockingIdempotentBatchedDataFetcher) batched::get
+                    : (IdempotentBatchedDataFetcher) batched::get;
+            return (IdempotentDataFetcher<T>) idempotentBatched;
+        }
+        if (blocking) {
+            BlockingIdempotentDataFetcher<T> blockingIdempotent = dataFetcher::get;
+            return blockingIdempotent;
+        }
+        return dataFetcher::get;
+    }
+
+    /**
+     * An idempotent {@link BatchedDataFetcher}.
+     */
+    interface IdempotentBatchedDataFetcher extends IdempotentDataFetcher<Object>, BatchedDataFetcher {
+    }
+}
@@ -0,0 +1,252 @@
+package graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.execution.DataFetcherResult;
+import graphql.schema.GraphQLArgument;
+import graphql.schema.GraphQLDirective;
+import graphql.schema.GraphQLFieldDefinition;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static graphql.Assert.assertNotNull;
+import static graphql.Assert.assertTrue;
+
+/**
+ * A bounded in-memory {@link FieldCache}. A field is cached when it is declared in the builder or has the directive
+ *
+ * <pre>
+ * directive @cached(ttlMillis: Int!) on FIELD_DEFINITION
+ * </pre>
+ *
+ * The values are keyed by field, source and arguments. The sources are compared with equals, unless a source key is
+ * configured (e.g. the id of an entity). A miss is fetched once: concurrent gets of the same key share the fetch.
+ * Failed fetches and values with errors are not cached.
+ *
+ * The hits, misses and evictions are counted for metrics.
+ */
+public class InMemoryFieldCache implements FieldCache {
+
+    public static final String CACHED_DIRECTIVE = "cached";
+    public static final String TTL_MILLIS_ARGUMENT = "ttlMillis";
+
+    private final Cache<Key, Entry> cache;
+    private final Map<String, Duration> ttlsByField;
+    private final Function<Object, Object> sourceKey;
+    private final Map<GraphQLFieldDefinition, Optional<Duration>> directiveTtls = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder failedFetchCount = new LongAdder();
+
+    private InMemoryFieldCache(Builder builder) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(builder.maximumSize)
+                .expireAfterWrite(builder.maximumTtl.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+        this.ttlsByField = new LinkedHashMap<>(builder.ttlsByField);
+        this.sourceKey = builder.sourceKey;
+    }
+
+    public static Builder newInMemoryFieldCache() {
+        return new Builder();
+    }
+
+    @Override
+    public Duration getTtl(String typeName, GraphQLFieldDefinition fieldDefinition) {
+        Duration ttl = ttlsByField.isEmpty() ? null : ttlsByField.get(typeName + "." + fieldDefinition.getName());
+        if (ttl != null) {
+            return ttl;
+        }
+        return directiveTtls.computeIfAbsent(fieldDefinition, InMemoryFieldCache::directiveTtl).orElse(null);
+    }
+
+    private static Optional<Duration> directiveTtl(GraphQLFieldDefinition fieldDefinition) {
+        GraphQLDirective directive = fieldDefinition.getDirective(CACHED_DIRECTIVE);
+        if (directive == null) {
+            return Optional.empty();
+        }
+        GraphQLArgument ttlMillis = directive.getArgument(TTL_MILLIS_ARGUMENT);
+        if (ttlMillis == null || !(ttlMillis.getValue() instanceof Number)) {
+            return Optional.empty();
+        }
+        return Optional.of(Duration.ofMillis(((Number) ttlMillis.getValue()).longValue()));
+    }
+
+    @Override
+    public CompletableFuture<Object> get(String typeName,
+                                         GraphQLFieldDefinition fieldDefinition,
+                                         Object source,
+                                         Map<String, Object> arguments,
+                                         Duration ttl,
+                                         Supplier<CompletableFuture<Object>> fetch) {
+        Object key = sourceKey == null ? source : sourceKey.apply(source);
+        Key cacheKey = new Key(typeName, fieldDefinition.getName(), key, arguments);
+        long now = System.nanoTime();
+        Entry newEntry = new Entry(new CompletableFuture<>(), now + ttl.toNanos());
+        Entry entry = cache.asMap().compute(cacheKey, (k, existing) -> existing != null && !existing.isExpired(now) ? existing : newEntry);
+        if (entry != newEntry) {
+            hitCount.increment();
+            return entry.value;
+        }
+        missCount.increment();
+        fetch.get().whenComplete((value, throwable) -> {
+            if (throwable != null || hasErrors(value)) {
+                if (throwable != null) {
+                    failedFetchCount.increment();
+                }
+                cache.asMap().remove(cacheKey, newEntry);
+            }
+            if (throwable != null) {
+                newEntry.value.completeExceptionally(throwable);
+            } else {
+                newEntry.value.complete(value);
+            }
+        });
+        return newEntry.value;
+    }
+
+    private static boolean hasErrors(Object value) {
+        return value instanceof DataFetcherResult && !((DataFetcherResult<?>) value).getErrors().isEmpty();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getFailedFetchCount() {
+        return failedFetchCount.sum();
+    }
+
+    /**
+     * @return the number of values evicted because of the size bound or the maximum ttl
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private static class Entry {
+        private final CompletableFuture<Object> value;
+        private final long expiresAtNanos;
+
+        private Entry(CompletableFuture<Object> value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos >= 0;
+        }
+    }
+
+    private static class Key {
+        private final String typeName;
+        private final String fieldName;
+        private final Object sourceKey;
+        private final Map<String, Object> arguments;
+
+        private Key(String typeName, String fieldName, Object sourceKey, Map<String, Object> arguments) {
+            this.typeName = typeName;
+            this.fieldName = fieldName;
+            this.sourceKey = sourceKey;
+            this.arguments = arguments;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return typeName.equals(key.typeName) &&
+                    fieldName.equals(key.fieldName) &&
+                    Objects.equals(sourceKey, key.sourceKey) &&
+                    Objects.equals(arguments, key.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(typeName, fieldName, sourceKey, arguments);
+        }
+    }
+
+    public static final class Builder {
+        private long maximumSize = 10_000;
+        private Duration maximumTtl = Duration.ofHours(1);
+        private final Map<String, Duration> ttlsByField = new LinkedHashMap<>();
+        private Function<Object, Object> sourceKey;
+
+        private Builder() {
+        }
+
+        public Builder maximumSize(long val) {
+            assertTrue(val > 0, "maximumSize must be positive");
+            maximumSize = val;
+            return this;
+        }
+
+        /**
+         * @param val values are evicted after this time even if their ttl is longer
+         *
+         * @return this builder
+         */
+        public Builder maximumTtl(Duration val) {
+            maximumTtl = positive(val);
+            return this;
+        }
+
+        /**
+         * @param typeName  the object type of the field
+         * @param fieldName the name of the field
+         * @param ttl       how long a value of the field is served: overrides the ttl of a {@code @cached} directive
+         *
+         * @return this builder
+         */
+        public Builder field(String typeName, String fieldName, Duration ttl) {
+            ttlsByField.put(assertNotNull(typeName) + "." + assertNotNull(fieldName), positive(ttl));
+            return this;
+        }
+
+        /**
+         * @param val the key of a source (e.g. the id of an entity): by default the source itself
+         *
+         * @return this builder
+         */
+        public Builder sourceKey(Function<Object, Object> val) {
+            sourceKey = assertNotNull(val);
+            return this;
+        }
+
+        public InMemoryFieldCache build() {
+            return new InMemoryFieldCache(this);
+        }
+
+        private static Duration positive(Duration ttl) {
+            assertNotNull(ttl);
+            assertTrue(!ttl.isNegative() && !ttl.isZero(), "a ttl must be positive");
+            return ttl;
+        }
+    }
+}
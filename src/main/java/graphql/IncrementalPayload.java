@@ -0,0 +1,117 @@
+package graphql;
+
+import graphql.execution.ExecutionPath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One payload of an incremental execution (see {@link CFExecution#executeIncrementally}): the initial result without
+ * the deferred fields and streamed list items, followed by one patch per {@code @defer} fragment of an object and
+ * per streamed list item. If the end of a lazy streamed list is only known after its last item was delivered, the
+ * execution ends with a payload without data. A lazy streamed list which fails ends with a patch for the item which
+ * couldn't be pulled: without data, but with the error.
+ */
+public class IncrementalPayload {
+
+    private final boolean initial;
+    private final Object data;
+    private final List<GraphQLError> errors;
+    // null for the initial and the completing payload
+    private final ExecutionPath path;
+    private final String label;
+    private final boolean hasNext;
+
+    private IncrementalPayload(boolean initial, Object data, List<GraphQLError> errors, ExecutionPath path, String label, boolean hasNext) {
+        this.initial = initial;
+        this.data = data;
+        this.errors = errors;
+        this.path = path;
+        this.label = label;
+        this.hasNext = hasNext;
+    }
+
+    static IncrementalPayload initial(Object data, List<GraphQLError> errors, boolean hasNext) {
+        return new IncrementalPayload(true, data, errors, null, null, hasNext);
+    }
+
+    static IncrementalPayload patch(Object data, List<GraphQLError> errors, ExecutionPath path, String label, boolean hasNext) {
+        return new IncrementalPayload(false, data, errors, path, label, hasNext);
+    }
+
+    static IncrementalPayload completed() {
+        return new IncrementalPayload(false, null, Collections.emptyList(), null, null, false);
+    }
+
+    /**
+     * @return the data of the initial result, the fields of a deferred fragment or a streamed list item
+     */
+    public Object getData() {
+        return data;
+    }
+
+    public List<GraphQLError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the path of the object the deferred fields belong to or of the streamed item, null for the initial
+     * and the completing payload
+     */
+    public ExecutionPath getPath() {
+        return path;
+    }
+
+    /**
+     * @return the label of the {@code @defer} or {@code @stream} directive or null
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    public boolean isInitial() {
+        return initial;
+    }
+
+    /**
+     * @return false for the last payload of the execution
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public Map<String, Object> toSpecification() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (initial || path != null) {
+            result.put("data", data);
+        }
+        if (!errors.isEmpty()) {
+            List<Map<String, Object>> specErrors = new ArrayList<>();
+            for (GraphQLError error : errors) {
+                specErrors.add(error.toSpecification());
+            }
+            result.put("errors", specErrors);
+        }
+        if (path != null) {
+            result.put("path", path.toList());
+        }
+        if (label != null) {
+            result.put("label", label);
+        }
+        result.put("hasNext", hasNext);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalPayload{" +
+                "data=" + data +
+                ", path=" + path +
+                ", label=" + label +
+                ", hasNext=" + hasNext +
+                '}';
+    }
+}
@@ -0,0 +1,248 @@
+package graphql;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Pulls the elements of a lazy list value (an {@link Iterator}, a {@link Stream} or a {@link Publisher}) in chunks,
+ * so only a chunk of it is on the heap at a time.
+ *
+ * Not thread safe: a chunk must only be requested after the previous one completed.
+ */
+abstract class ListChunks {
+
+    static final int DEFAULT_CHUNK_SIZE = 256;
+
+    /**
+     * @return true if the value is a lazy list value
+     */
+    static boolean isLazyList(Object value) {
+        return value instanceof Iterator || value instanceof Stream || value instanceof Publisher;
+    }
+
+    @SuppressWarnings("unchecked")
+    static ListChunks of(Object lazyList) {
+        if (lazyList instanceof Iterator) {
+            return new IteratorChunks((Iterator<Object>) lazyList, null);
+        }
+        if (lazyList instanceof Stream) {
+            Stream<Object> stream = (Stream<Object>) lazyList;
+            return new IteratorChunks(stream.iterator(), stream);
+        }
+        return new PublisherChunks((Publisher<Object>) lazyList);
+    }
+
+    /**
+     * @param maxSize the size of the chunk
+     *
+     * @return the next maxSize elements: fewer only if the list ended, empty after the end
+     */
+    abstract CompletableFuture<List<Object>> next(int maxSize);
+
+    /**
+     * @param chunkSize the number of elements pulled at a time
+     *
+     * @return all remaining elements
+     */
+    abstract CompletableFuture<List<Object>> collect(int chunkSize);
+
+    /**
+     * Stops pulling: closes the stream or cancels the subscription.
+     */
+    abstract void cancel();
+
+    private static class IteratorChunks extends ListChunks {
+        private final Iterator<Object> iterator;
+        // the stream of the iterator or null
+        private final Stream<Object> stream;
+
+        private IteratorChunks(Iterator<Object> iterator, Stream<Object> stream) {
+            this.iterator = iterator;
+            this.stream = stream;
+        }
+
+        @Override
+        CompletableFuture<List<Object>> next(int maxSize) {
+            return pull(maxSize);
+        }
+
+        @Override
+        CompletableFuture<List<Object>> collect(int chunkSize) {
+            return pull(Integer.MAX_VALUE);
+        }
+
+        private CompletableFuture<List<Object>> pull(int maxSize) {
+            List<Object> chunk = new ArrayList<>(Math.min(maxSize, DEFAULT_CHUNK_SIZE));
+            try {
+                while (chunk.size() < maxSize && iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                }
+                if (!iterator.hasNext()) {
+                    cancel();
+                }
+                return CompletableFuture.completedFuture(chunk);
+            } catch (RuntimeException e) {
+                cancel();
+                CompletableFuture<List<Object>> result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+                return result;
+            }
+        }
+
+        @Override
+        void cancel() {
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * Requests the elements of a chunk in batches of the chunk size: a chunk is complete when it is full, the
+     * publisher completed or failed.
+     */
+    private static class PublisherChunks extends ListChunks implements Subscriber<Object> {
+        private final Publisher<Object> publisher;
+
+        private Subscription subscription;
+        private boolean subscribed;
+        private boolean completed;
+        private Throwable error;
+
+        // the chunk in progress
+        private CompletableFuture<List<Object>> pending;
+        private List<Object> chunk;
+        private int targetSize;
+        private int requestSize;
+        private int outstanding;
+
+        private PublisherChunks(Publisher<Object> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        CompletableFuture<List<Object>> next(int maxSize) {
+            return pull(maxSize, maxSize);
+        }
+
+        @Override
+        CompletableFuture<List<Object>> collect(int chunkSize) {
+            return pull(Integer.MAX_VALUE, chunkSize);
+        }
+
+        private CompletableFuture<List<Object>> pull(int targetSize, int requestSize) {
+            CompletableFuture<List<Object>> result = new CompletableFuture<>();
+            boolean subscribe;
+            Subscription currentSubscription;
+            synchronized (this) {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                    return result;
+                }
+                if (completed || targetSize == 0) {
+                    result.complete(Collections.emptyList());
+                    return result;
+                }
+                this.pending = result;
+                this.chunk = new ArrayList<>(Math.min(targetSize, requestSize));
+                this.targetSize = targetSize;
+                this.requestSize = requestSize;
+                this.outstanding = Math.min(targetSize, requestSize);
+                subscribe = !subscribed;
+                subscribed = true;
+                currentSubscription = subscription;
+            }
+            if (subscribe) {
+                // requests the first batch in onSubscribe
+                publisher.subscribe(this);
+            } else {
+                currentSubscription.request(Math.min(targetSize, requestSize));
+            }
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            int initialRequest;
+            synchronized (this) {
+                this.subscription = subscription;
+                initialRequest = outstanding;
+            }
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(Object element) {
+            CompletableFuture<List<Object>> toComplete = null;
+            List<Object> fullChunk = null;
+            int toRequest = 0;
+            synchronized (this) {
+                chunk.add(element);
+                outstanding--;
+                if (chunk.size() == targetSize) {
+                    toComplete = pending;
+                    fullChunk = chunk;
+                    pending = null;
+                    chunk = null;
+                } else if (outstanding == 0) {
+                    toRequest = Math.min(requestSize, targetSize - chunk.size());
+                    outstanding = toRequest;
+                }
+            }
+            if (toComplete != null) {
+                toComplete.complete(fullChunk);
+            } else if (toRequest > 0) {
+                subscription.request(toRequest);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            CompletableFuture<List<Object>> toComplete;
+            synchronized (this) {
+                error = throwable;
+                toComplete = pending;
+                pending = null;
+                chunk = null;
+            }
+            if (toComplete != null) {
+                toComplete.completeExceptionally(throwable);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            CompletableFuture<List<Object>> toComplete;
+            List<Object> lastChunk;
+            synchronized (this) {
+                completed = true;
+                toComplete = pending;
+                lastChunk = chunk;
+                pending = null;
+                chunk = null;
+            }
+            if (toComplete != null) {
+                toComplete.complete(lastChunk);
+            }
+        }
+
+        @Override
+        void cancel() {
+            Subscription currentSubscription;
+            synchronized (this) {
+                currentSubscription = subscription;
+            }
+            if (currentSubscription != null) {
+                currentSubscription.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package graphql;
+
+import graphql.result.ExecutionResultNode;
+import graphql.result.ResultArena;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode;
+
+/**
+ * Resolves unresolved nodes without waiting for whole levels: the children of a batch are queued as soon as the batch
+ * is resolved and dispatched according to the {@link DispatchWindow}.
+ *
+ * The queue and the {@link ResultArena} are only changed while holding the lock of this dispatcher. The scheduler of
+ * the window only times the dispatches: the batches dispatched after {@code maxWait} are fetched on the dispatch
+ * executor. Once a batch failed no further batches are dispatched.
+ */
+public class PipelinedBatchDispatcher {
+
+    private final DispatchWindow dispatchWindow;
+    private final ResultArena resultArena;
+    private final Executor dispatchExecutor;
+    // returns the new children per unresolved node
+    private final Function<List<UnresolvedObjectResultNode>, CompletableFuture<List<Map<String, ExecutionResultNode>>>> fetchAndAnalyze;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private final Map<BatchKey, List<UnresolvedObjectResultNode>> pendingByBatchKey = new LinkedHashMap<>();
+    private int dispatchedBatches;
+
+    /**
+     * @param dispatchWindow   when the batches are dispatched
+     * @param resultArena      the arena the resolved nodes are filled into
+     * @param dispatchExecutor fetches the batches dispatched after {@code maxWait}
+     * @param fetchAndAnalyze  fetches a batch and returns the new children per unresolved node
+     */
+    public PipelinedBatchDispatcher(DispatchWindow dispatchWindow,
+                                    ResultArena resultArena,
+                                    Executor dispatchExecutor,
+                                    Function<List<UnresolvedObjectResultNode>, CompletableFuture<List<Map<String, ExecutionResultNode>>>> fetchAndAnalyze) {
+        this.dispatchWindow = dispatchWindow;
+        this.resultArena = resultArena;
+        this.dispatchExecutor = dispatchExecutor;
+        this.fetchAndAnalyze = fetchAndAnalyze;
+    }
+
+    /**
+     * @param unresolvedNodes the unresolved nodes below the root
+     *
+     * @return completes when all nodes (and the nodes created by them) are filled into the arena
+     */
+    public CompletableFuture<Void> resolve(List<UnresolvedObjectResultNode> unresolvedNodes) {
+        enqueue(unresolvedNodes);
+        completeIfDone();
+        return done;
+    }
+
+    private void enqueue(List<UnresolvedObjectResultNode> unresolvedNodes) {
+        List<List<UnresolvedObjectResultNode>> batches = new ArrayList<>();
+        synchronized (this) {
+            for (UnresolvedObjectResultNode unresolvedNode : unresolvedNodes) {
+                BatchKey batchKey = unresolvedNode.getFetchedValueAnalysis().getFieldSubSelection().getBatchKey();
+                List<UnresolvedObjectResultNode> pending = pendingByBatchKey.get(batchKey);
+                if (pending == null) {
+                    pending = new ArrayList<>();
+                    pendingByBatchKey.put(batchKey, pending);
+                    scheduleDispatch(batchKey, pending);
+                }
+                pending.add(unresolvedNode);
+                if (pending.size() == dispatchWindow.getMaxBatchSize()) {
+                    pendingByBatchKey.remove(batchKey);
+                    batches.add(pending);
+                }
+            }
+            if (dispatchWindow.getMaxWait().isZero()) {
+                batches.addAll(pendingByBatchKey.values());
+                pendingByBatchKey.clear();
+            }
+            dispatchedBatches += batches.size();
+        }
+        batches.forEach(this::dispatch);
+    }
+
+    private void scheduleDispatch(BatchKey batchKey, List<UnresolvedObjectResultNode> pending) {
+        if (dispatchWindow.getMaxWait().isZero() || done.isDone()) {
+            return;
+        }
+        dispatchWindow.getScheduler().schedule(() -> {
+            synchronized (this) {
+                // it could already be dispatched because it was full
+                if (pendingByBatchKey.get(batchKey) != pending) {
+                    return;
+                }
+                pendingByBatchKey.remove(batchKey);
+                dispatchedBatches++;
+            }
+            // the scheduler thread only times the dispatch
+            try {
+                dispatchExecutor.execute(() -> dispatch(pending));
+            } catch (RejectedExecutionException e) {
+                done.completeExceptionally(e);
+            }
+        }, dispatchWindow.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch(List<UnresolvedObjectResultNode> batch) {
+        // a batch failed: the result is not completed anyway
+        if (done.isCompletedExceptionally()) {
+            return;
+        }
+        CompletableFuture<List<Map<String, ExecutionResultNode>>> childrenPerNode;
+        try {
+            childrenPerNode = fetchAndAnalyze.apply(batch);
+        } catch (RuntimeException e) {
+            done.completeExceptionally(e);
+            return;
+        }
+        childrenPerNode.whenComplete((result, exception) -> {
+            if (exception != null) {
+                done.completeExceptionally(exception);
+                return;
+            }
+            List<UnresolvedObjectResultNode> newUnresolvedNodes = new ArrayList<>();
+            synchronized (this) {
+                for (int i = 0; i < result.size(); i++) {
+                    Map<String, ExecutionResultNode> children = result.get(i);
+                    resultArena.fill(batch.get(i), children);
+                    ResultArena.collectUnresolvedNodes(children.values(), newUnresolvedNodes);
+                }
+            }
+            // the children are queued before this batch counts as done
+            enqueue(newUnresolvedNodes);
+            synchronized (this) {
+                dispatchedBatches--;
+            }
+            completeIfDone();
+        });
+    }
+
+    // decided under the lock, completed outside of it: the rest of the execution continues in the completion
+    private void completeIfDone() {
+        boolean allResolved;
+        synchronized (this) {
+            allResolved = dispatchedBatches == 0 && pendingByBatchKey.isEmpty();
+        }
+        if (allResolved) {
+            done.complete(null);
+        }
+    }
+}
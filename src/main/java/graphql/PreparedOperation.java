@@ -0,0 +1,180 @@
+package graphql;
+
+import graphql.execution.FieldCollector;
+import graphql.execution.FieldCollectorParameters;
+import graphql.language.Directive;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.NodeUtil;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.schema.GraphQLObjectType;
+import graphql.schema.GraphQLSchema;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything about an operation of a document which doesn't depend on the variables: built once per
+ * (schema, document, operation name) and shared by all executions of it (see {@link PreparedOperationCache}).
+ *
+ * The collected fields (root fields and all sub selections) are shared too, unless the document uses
+ * {@code @skip} or {@code @include}: then they depend on the variables and are collected per execution.
+ * Incremental executions of documents with {@code @defer} fragments use their own sub selections, which don't
+ * contain the deferred fields: collected per execution as well if an {@code if} argument of {@code @defer}
+ * references a variable.
+ */
+public class PreparedOperation {
+
+    private final GraphQLSchema graphQLSchema;
+    private final Document document;
+    private final OperationDefinition operationDefinition;
+    private final Map<String, FragmentDefinition> fragmentsByName;
+    private final GraphQLObjectType operationRootType;
+    private final FieldDefinitions fieldDefinitions;
+    private final boolean variableDependentFields;
+    // only set if the collected fields don't depend on the variables
+    private final Map<String, List<Field>> rootFields;
+    private final BatchKeys batchKeys;
+    private final boolean deferDirectives;
+    private final boolean variableDependentDefers;
+    // only set if the document has @defer fragments and neither the collected nor the deferred fields depend on the variables
+    private final BatchKeys incrementalBatchKeys;
+
+    private final FieldCollector fieldCollector = new FieldCollector();
+
+    private PreparedOperation(GraphQLSchema graphQLSchema, Document document, String operationName) {
+        NodeUtil.GetOperationResult getOperationResult = NodeUtil.getOperation(document, operationName);
+        this.graphQLSchema = graphQLSchema;
+        this.document = document;
+        this.operationDefinition = getOperationResult.operationDefinition;
+        this.fragmentsByName = getOperationResult.fragmentsByName;
+        this.operationRootType = Common.getOperationRootType(graphQLSchema, operationDefinition);
+        this.fieldDefinitions = new FieldDefinitions(graphQLSchema);
+        this.variableDependentFields = hasConditionalDirectives(operationDefinition.getSelectionSet())
+                || fragmentsByName.values().stream().anyMatch(fragment -> hasConditionalDirectives(fragment.getSelectionSet()));
+        this.rootFields = variableDependentFields ? null : collectRootFields(null);
+        this.batchKeys = variableDependentFields ? null : new BatchKeys();
+        this.deferDirectives = DeferredFieldCollector.hasDeferDirectives(operationDefinition.getSelectionSet())
+                || fragmentsByName.values().stream().anyMatch(fragment -> DeferredFieldCollector.hasDeferDirectives(fragment.getSelectionSet()));
+        this.variableDependentDefers = DeferredFieldCollector.hasVariableDeferDirectives(operationDefinition.getSelectionSet())
+                || fragmentsByName.values().stream().anyMatch(fragment -> DeferredFieldCollector.hasVariableDeferDirectives(fragment.getSelectionSet()));
+        this.incrementalBatchKeys = variableDependentFields || variableDependentDefers || !deferDirectives ? null : newIncrementalBatchKeys(null);
+    }
+
+    public static PreparedOperation prepare(GraphQLSchema graphQLSchema, Document document, String operationName) {
+        return new PreparedOperation(graphQLSchema, document, operationName);
+    }
+
+    public GraphQLSchema getGraphQLSchema() {
+        return graphQLSchema;
+    }
+
+    public Document getDocument() {
+        return document;
+    }
+
+    public OperationDefinition getOperationDefinition() {
+        return operationDefinition;
+    }
+
+    public Map<String, FragmentDefinition> getFragmentsByName() {
+        return fragmentsByName;
+    }
+
+    public GraphQLObjectType getOperationRootType() {
+        return operationRootType;
+    }
+
+    public FieldDefinitions getFieldDefinitions() {
+        return fieldDefinitions;
+    }
+
+    public Map<String, List<Field>> getRootFields(Map<String, Object> coercedVariables) {
+        if (variableDependentFields) {
+            return collectRootFields(coercedVariables);
+        }
+        return rootFields;
+    }
+
+    /**
+     * @return the sub selections for one execution: shared by all executions if they don't depend on the variables
+     */
+    public BatchKeys getBatchKeys() {
+        if (variableDependentFields) {
+            return new BatchKeys();
+        }
+        return batchKeys;
+    }
+
+    /**
+     * @return true if the operation or its fragments contain {@code @defer} fragments
+     */
+    public boolean hasDeferDirectives() {
+        return deferDirectives;
+    }
+
+    /**
+     * @param coercedVariables the variables the {@code if} arguments of {@code @defer} are evaluated with
+     *
+     * @return the sub selections for one incremental execution: without the fields of {@code @defer} fragments
+     */
+    public BatchKeys getIncrementalBatchKeys(Map<String, Object> coercedVariables) {
+        if (!deferDirectives) {
+            return getBatchKeys();
+        }
+        if (variableDependentDefers) {
+            return newIncrementalBatchKeys(coercedVariables);
+        }
+        if (variableDependentFields) {
+            return newIncrementalBatchKeys(null);
+        }
+        return incrementalBatchKeys;
+    }
+
+    private BatchKeys newIncrementalBatchKeys(Map<String, Object> coercedVariables) {
+        return new BatchKeys(new DeferredFieldCollector(fragmentsByName, coercedVariables));
+    }
+
+    private Map<String, List<Field>> collectRootFields(Map<String, Object> coercedVariables) {
+        FieldCollectorParameters collectorParameters = FieldCollectorParameters.newParameters()
+                .schema(graphQLSchema)
+                .objectType(operationRootType)
+                .fragments(fragmentsByName)
+                .variables(coercedVariables)
+                .build();
+        return fieldCollector.collectFields(collectorParameters, operationDefinition.getSelectionSet());
+    }
+
+    private static boolean hasConditionalDirectives(SelectionSet selectionSet) {
+        if (selectionSet == null) {
+            return false;
+        }
+        for (Selection selection : selectionSet.getSelections()) {
+            if (selection instanceof Field) {
+                Field field = (Field) selection;
+                if (isConditional(field.getDirectives()) || hasConditionalDirectives(field.getSelectionSet())) {
+                    return true;
+                }
+            } else if (selection instanceof InlineFragment) {
+                InlineFragment inlineFragment = (InlineFragment) selection;
+                if (isConditional(inlineFragment.getDirectives()) || hasConditionalDirectives(inlineFragment.getSelectionSet())) {
+                    return true;
+                }
+            } else if (selection instanceof FragmentSpread) {
+                if (isConditional(((FragmentSpread) selection).getDirectives())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isConditional(List<Directive> directives) {
+        return directives.stream().anyMatch(directive -> directive.getName().equals("skip") || directive.getName().equals("include"));
+    }
+}
@@ -0,0 +1,67 @@
+package graphql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import graphql.language.Document;
+import graphql.schema.GraphQLSchema;
+
+import java.util.Objects;
+
+/**
+ * A bounded (least recently used) cache of {@link PreparedOperation}s.
+ *
+ * Schema and document are compared by identity: the cache is meant for documents which are parsed once and then
+ * executed many times (e.g. persisted queries).
+ */
+public class PreparedOperationCache {
+
+    private final Cache<Key, PreparedOperation> cache;
+
+    public PreparedOperationCache(long maximumSize) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public PreparedOperation get(GraphQLSchema graphQLSchema, Document document, String operationName) {
+        Key key = new Key(graphQLSchema, document, operationName);
+        PreparedOperation preparedOperation = cache.getIfPresent(key);
+        if (preparedOperation == null) {
+            // concurrent misses may prepare the operation more than once, which is harmless
+            preparedOperation = PreparedOperation.prepare(graphQLSchema, document, operationName);
+            cache.put(key, preparedOperation);
+        }
+        return preparedOperation;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static class Key {
+        private final GraphQLSchema graphQLSchema;
+        private final Document document;
+        private final String operationName;
+
+        private Key(GraphQLSchema graphQLSchema, Document document, String operationName) {
+            this.graphQLSchema = graphQLSchema;
+            this.document = document;
+            this.operationName = operationName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return graphQLSchema == key.graphQLSchema &&
+                    document == key.document &&
+                    Objects.equals(operationName, key.operationName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(graphQLSchema) + System.identityHashCode(document)) + Objects.hashCode(operationName);
+        }
+    }
+}
@@ -7,7 +7,6 @@ import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionId;
 import graphql.execution.ExecutionPath;
 import graphql.execution.ExecutionStepInfo;
-import graphql.execution.ValuesResolver;
 import graphql.language.Field;
 import graphql.schema.DataFetcher;
 import graphql.schema.DataFetchingEnvironment;
@@ -15,64 +14,240 @@ import graphql.schema.DataFetchingFieldSelectionSet;
 import graphql.schema.DataFetchingFieldSelectionSetImpl;
 import graphql.schema.GraphQLFieldDefinition;
 import graphql.schema.GraphQLOutputType;
-import graphql.schema.visibility.GraphqlFieldVisibility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static graphql.BatchedDataFetchingEnvironment.newBatchedDataFetchingEnvironment;
 import static graphql.schema.DataFetchingEnvironmentBuilder.newDataFetchingEnvironment;
 
 public class ValueFetcherCF {
 
     private final ExecutionContext executionContext;
-
-    ValuesResolver valuesResolver = new ValuesResolver();
+    private final FetchInstrumentation fetchInstrumentation;
+    private final FetchExecutors fetchExecutors;
+    private final FetchTimeouts fetchTimeouts;
+    // null: no hedging
+    private final HedgePolicy hedgePolicy;
+    // null: no memoization
+    private final FetchMemo fetchMemo;
+    // null: no field cache
+    private final FieldCache fieldCache;
+    // null: no data loaders to hold back
+    private final DataLoaderDispatcher dataLoaderDispatcher;
+    // the chunk size lazy list values are collected with before they are memoized or cached
+    private final int listChunkSize;
 
     private static final Logger log = LoggerFactory.getLogger(ValueFetcherCF.class);
 
     public static final Object NULL_VALUE = new Object();
 
     public ValueFetcherCF(ExecutionContext executionContext) {
+        this(executionContext, FetchInstrumentation.NOOP, FetchExecutors.NONE, FetchTimeouts.NONE, null, null, null, null, ListChunks.DEFAULT_CHUNK_SIZE);
+    }
+
+    public ValueFetcherCF(ExecutionContext executionContext,
+                          FetchInstrumentation fetchInstrumentation,
+                          FetchExecutors fetchExecutors,
+                          FetchTimeouts fetchTimeouts,
+                          HedgePolicy hedgePolicy,
+                          FetchMemo fetchMemo,
+                          FieldCache fieldCache,
+                          DataLoaderDispatcher dataLoaderDispatcher,
+                          int listChunkSize) {
         this.executionContext = executionContext;
+        this.fetchInstrumentation = fetchInstrumentation;
+        this.fetchExecutors = fetchExecutors;
+        this.fetchTimeouts = fetchTimeouts;
+        this.hedgePolicy = hedgePolicy;
+        this.fetchMemo = fetchMemo;
+        this.fieldCache = fieldCache;
+        this.dataLoaderDispatcher = dataLoaderDispatcher;
+        this.listChunkSize = listChunkSize;
     }
 
 
     public CompletableFuture<List<FetchedValue>> fetchBatchedValues(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
-        System.out.println("Fetch batch values size: " + sources.size());
+        FetchInstrumentationContext batchContext = fetchInstrumentation.beginBatch(executionContext, sameFields, executionInfos);
+        long startNanos = batchContext.start();
+        CompletableFuture<List<FetchedValue>> result;
         ExecutionStepInfo executionStepInfo = executionInfos.get(0);
         if (isDataFetcherBatched(sameFields, executionStepInfo)) {
-            //TODO: the stepInfo is not correct for all values: how to give the DF all executionInfos?
-            return fetchValue(sources, sameFields, executionStepInfo)
-                    .thenApply(fetchedValue -> extractBatchedValues(fetchedValue, sources.size()));
+            result = fetchValuesWithBatchedDataFetcher(sources, sameFields, executionInfos);
         } else {
             List<CompletableFuture<FetchedValue>> fetchedValues = new ArrayList<>();
             for (int i = 0; i < sources.size(); i++) {
                 fetchedValues.add(fetchValue(sources.get(i), sameFields, executionInfos.get(i)));
             }
-            return Async.each(fetchedValues);
+            result = Async.each(fetchedValues);
+        }
+        return batchContext.whenEnded(startNanos, result, ValueFetcherCF::getErrors);
+    }
+
+    private static List<GraphQLError> getErrors(List<FetchedValue> fetchedValues) {
+        List<GraphQLError> errors = new ArrayList<>();
+        for (FetchedValue fetchedValue : fetchedValues) {
+            errors.addAll(fetchedValue.getErrors());
         }
+        return errors;
     }
 
-    private List<FetchedValue> extractBatchedValues(FetchedValue fetchedValueContainingList, int expectedSize) {
-        List<Object> list = (List<Object>) fetchedValueContainingList.getFetchedValue();
-        Assert.assertTrue(list.size() == expectedSize, "Unexpected result size");
+    private CompletableFuture<List<FetchedValue>> fetchValuesWithBatchedDataFetcher(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        if (fetchMemo != null) {
+            return fetchDistinctValuesWithBatchedDataFetcher(sources, sameFields, executionInfos);
+        }
+        Field field = sameFields.get(0);
+        return fetchBatch(sources, sameFields, executionInfos)
+                .thenApply(rawBatchedResult -> extractBatchedValues(rawBatchedResult, sources, sameFields, executionInfos))
+                .exceptionally(exception -> executionInfos.stream()
+                        .map(executionInfo -> handleExceptionWhileFetching(field, executionInfo.getPath(), exception))
+                        .collect(Collectors.toList()));
+    }
+
+    // the batch only contains the sources which are not memoized yet, the others share the memoized fetches
+    private CompletableFuture<List<FetchedValue>> fetchDistinctValuesWithBatchedDataFetcher(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        Field field = sameFields.get(0);
+        GraphQLFieldDefinition fieldDef = executionInfos.get(0).getFieldDefinition();
+
+        List<CompletableFuture<Object>> rawValues = new ArrayList<>(sources.size());
+        List<Object> distinctSources = new ArrayList<>();
+        List<ExecutionStepInfo> distinctExecutionInfos = new ArrayList<>();
+        List<CompletableFuture<Object>> distinctValues = new ArrayList<>();
+        int firstDistinctIndex = -1;
+        for (int i = 0; i < sources.size(); i++) {
+            Object source = sources.get(i);
+            ExecutionStepInfo executionInfo = executionInfos.get(i);
+            CompletableFuture<Object> rawValue = new CompletableFuture<>();
+            CompletableFuture<Object> memoized = fetchMemo.putIfAbsent(fetchMemo.key(source, fieldDef, executionInfo.getArguments()), rawValue);
+            if (memoized != null) {
+                rawValues.add(memoized);
+                continue;
+            }
+            if (firstDistinctIndex < 0) {
+                firstDistinctIndex = i;
+            }
+            rawValues.add(rawValue);
+            distinctSources.add(source);
+            distinctExecutionInfos.add(executionInfo);
+            distinctValues.add(rawValue);
+        }
+
+        CompletableFuture<List<GraphQLError>> batchErrors;
+        if (distinctSources.isEmpty()) {
+            batchErrors = CompletableFuture.completedFuture(Collections.emptyList());
+        } else {
+            batchErrors = fetchBatch(distinctSources, sameFields, distinctExecutionInfos)
+                    .thenApply(rawBatchedResult -> {
+                        BatchedDataFetcherResult batchedResult = BatchedDataFetcherResult.from(rawBatchedResult);
+                        List<Object> values = batchedResult.getValues(distinctSources);
+                        for (int i = 0; i < values.size(); i++) {
+                            CompletableFuture<Object> distinctValue = distinctValues.get(i);
+                            collectLazyList(CompletableFuture.completedFuture(values.get(i))).whenComplete((value, exception) -> {
+                                if (exception != null) {
+                                    distinctValue.completeExceptionally(exception);
+                                } else {
+                                    distinctValue.complete(value);
+                                }
+                            });
+                        }
+                        return batchedResult.getErrors();
+                    });
+            batchErrors.whenComplete((errors, exception) -> {
+                if (exception != null) {
+                    distinctValues.forEach(rawValue -> rawValue.completeExceptionally(exception));
+                }
+            });
+        }
+
+        List<CompletableFuture<FetchedValue>> fetchedValues = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+            ExecutionPath path = executionInfos.get(i).getPath();
+            CompletableFuture<FetchedValue> fetchedValue = rawValues.get(i)
+                    .thenApply(rawValue -> new FetchedValue(rawValue, rawValue, Collections.emptyList()))
+                    .exceptionally(exception -> handleExceptionWhileFetching(field, path, exception));
+            if (i == firstDistinctIndex) {
+                // the errors of the batch are reported once, like without memoization
+                fetchedValue = fetchedValue.thenCombine(batchErrors.exceptionally(exception -> Collections.emptyList()), ValueFetcherCF::withBatchErrors);
+            }
+            fetchedValues.add(fetchedValue
+                    .thenApply(value -> unboxPossibleDataFetcherResult(sameFields, path, value))
+                    .thenApply(this::unboxPossibleOptional));
+        }
+        return Async.each(fetchedValues);
+    }
+
+    private static FetchedValue withBatchErrors(FetchedValue fetchedValue, List<GraphQLError> batchErrors) {
+        if (batchErrors.isEmpty()) {
+            return fetchedValue;
+        }
+        List<GraphQLError> errors = new ArrayList<>(batchErrors);
+        errors.addAll(fetchedValue.getErrors());
+        return new FetchedValue(fetchedValue.getFetchedValue(), fetchedValue.getRawFetchedValue(), errors);
+    }
+
+    private CompletableFuture<Object> fetchBatch(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        GraphQLFieldDefinition fieldDef = executionInfos.get(0).getFieldDefinition();
+        // the arguments are already resolved for every step info
+        List<Map<String, Object>> arguments = executionInfos.stream()
+                .map(ExecutionStepInfo::getArguments)
+                .collect(Collectors.toList());
+
+        BatchedDataFetchingEnvironment environment = newBatchedDataFetchingEnvironment(executionContext)
+                .sources(sources)
+                .executionStepInfos(executionInfos)
+                .arguments(arguments)
+                .fields(sameFields)
+                .fieldDefinition(fieldDef)
+                .fieldType(fieldDef.getType())
+                .build();
+
+        ExecutionId executionId = executionContext.getExecutionId();
+        ExecutionPath path = executionInfos.get(0).getPath();
+        BatchedDataFetcher dataFetcher = (BatchedDataFetcher) fieldDef.getDataFetcher();
+        String typeName = executionInfos.get(0).getParent().getUnwrappedNonNullType().getName();
+        return fetch(dataFetcher, typeName, fieldDef.getName(), true, path,
+                () -> callBatchedDataFetcher(dataFetcher, environment, executionId, path))
+                // a batched data fetcher returning null fetched null for every source
+                .thenApply(rawBatchedResult -> rawBatchedResult == NULL_VALUE ? null : rawBatchedResult);
+    }
+
+    private CompletableFuture<Object> callBatchedDataFetcher(BatchedDataFetcher dataFetcher, BatchedDataFetchingEnvironment environment, ExecutionId executionId, ExecutionPath path) {
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        try {
+            log.debug("'{}' fetching field '{}' for {} sources using batched data fetcher '{}'...", executionId, path, environment.getSources().size(), dataFetcher.getClass().getName());
+            Object fetchedValueRaw = dataFetcher.get(environment);
+            handleFetchedValue(fetchedValueRaw, result);
+        } catch (Exception e) {
+            log.debug(String.format("'%s', field '%s' batched fetch threw exception", executionId, path), e);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private List<FetchedValue> extractBatchedValues(Object rawBatchedResult, List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        BatchedDataFetcherResult batchedResult = BatchedDataFetcherResult.from(rawBatchedResult);
+        List<Object> values = batchedResult.getValues(sources);
         List<FetchedValue> result = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
+        for (int i = 0; i < values.size(); i++) {
             List<GraphQLError> errors;
             if (i == 0) {
-                errors = fetchedValueContainingList.getErrors();
+                errors = batchedResult.getErrors();
             } else {
                 errors = Collections.emptyList();
             }
-            FetchedValue fetchedValue = new FetchedValue(list.get(0), fetchedValueContainingList.getRawFetchedValue(), errors);
-            result.add(fetchedValue);
+            Object value = values.get(i);
+            FetchedValue fetchedValue = new FetchedValue(value, value, errors);
+            fetchedValue = unboxPossibleDataFetcherResult(sameFields, executionInfos.get(i).getPath(), fetchedValue);
+            result.add(unboxPossibleOptional(fetchedValue));
         }
         return result;
     }
@@ -86,8 +261,8 @@ public class ValueFetcherCF {
         Field field = sameFields.get(0);
         GraphQLFieldDefinition fieldDef = executionInfo.getFieldDefinition();
 
-        GraphqlFieldVisibility fieldVisibility = executionContext.getGraphQLSchema().getFieldVisibility();
-        Map<String, Object> argumentValues = valuesResolver.getArgumentValues(fieldVisibility, fieldDef.getArguments(), field.getArguments(), executionContext.getVariables());
+        // resolved once per field by the ExecutionStepInfoFactory
+        Map<String, Object> argumentValues = executionInfo.getArguments();
 
         GraphQLOutputType fieldType = fieldDef.getType();
         DataFetchingFieldSelectionSet fieldCollector = DataFetchingFieldSelectionSetImpl.newCollector(executionContext, fieldType, sameFields);
@@ -105,11 +280,41 @@ public class ValueFetcherCF {
 
         ExecutionId executionId = executionContext.getExecutionId();
         ExecutionPath path = executionInfo.getPath();
-        return callDataFetcher(fieldDef, environment, executionId, path)
+        FetchInstrumentationContext fieldContext = fetchInstrumentation.beginField(executionContext, executionInfo);
+        long startNanos = fieldContext.start();
+        String typeName = executionInfo.getParent().getUnwrappedNonNullType().getName();
+        DataFetcher dataFetcher = fieldDef.getDataFetcher();
+        Duration ttl = fieldCache == null ? null : fieldCache.getTtl(typeName, fieldDef);
+        boolean shared = ttl != null || fetchMemo != null;
+        Supplier<CompletableFuture<Object>> uncachedFetchCall = () -> {
+            CompletableFuture<Object> fetch = fetch(dataFetcher, typeName, fieldDef.getName(), false, path,
+                    () -> callDataFetcher(dataFetcher, environment, executionId, path));
+            return shared ? collectLazyList(fetch) : fetch;
+        };
+        Supplier<CompletableFuture<Object>> fetchCall = ttl == null ? uncachedFetchCall
+                : () -> fieldCache.get(typeName, fieldDef, source, argumentValues, ttl, uncachedFetchCall);
+        CompletableFuture<Object> rawFetch = fetchMemo == null ? fetchCall.get() : fetchMemo.fetch(fetchMemo.key(source, fieldDef, argumentValues), fetchCall);
+        CompletableFuture<FetchedValue> result = rawFetch
                 .thenApply(rawFetchedValue -> new FetchedValue(rawFetchedValue, rawFetchedValue, Collections.emptyList()))
                 .exceptionally(exception -> handleExceptionWhileFetching(field, path, exception))
-                .thenApply(result -> unboxPossibleDataFetcherResult(sameFields, path, result))
+                .thenApply(fetchedValue -> unboxPossibleDataFetcherResult(sameFields, path, fetchedValue))
                 .thenApply(this::unboxPossibleOptional);
+        return fieldContext.whenEnded(startNanos, result, FetchedValue::getErrors);
+    }
+
+    // a lazy list value can only be pulled once: a memoized or cached fetch shares its collected elements instead
+    private CompletableFuture<Object> collectLazyList(CompletableFuture<Object> fetch) {
+        return fetch.thenCompose(rawValue -> {
+            if (rawValue instanceof DataFetcherResult && ListChunks.isLazyList(((DataFetcherResult<?>) rawValue).getData())) {
+                DataFetcherResult<?> dataFetcherResult = (DataFetcherResult<?>) rawValue;
+                return ListChunks.of(dataFetcherResult.getData()).collect(listChunkSize)
+                        .thenApply(elements -> (Object) new DataFetcherResult<Object>(elements, dataFetcherResult.getErrors()));
+            }
+            if (ListChunks.isLazyList(rawValue)) {
+                return ListChunks.of(rawValue).collect(listChunkSize).thenApply(elements -> (Object) elements);
+            }
+            return CompletableFuture.completedFuture(rawValue);
+        });
     }
 
     private FetchedValue handleExceptionWhileFetching(Field field, ExecutionPath path, Throwable exception) {
@@ -126,10 +331,33 @@ public class ValueFetcherCF {
 
     }
 
-    private CompletableFuture<Object> callDataFetcher(GraphQLFieldDefinition fieldDef, DataFetchingEnvironment environment, ExecutionId executionId, ExecutionPath path) {
+    // calls the data fetcher on its executor, hedges the call when the fetcher is idempotent and applies the timeout to the answer
+    private CompletableFuture<Object> fetch(DataFetcher dataFetcher, String typeName, String fieldName, boolean batched, ExecutionPath path, Supplier<CompletableFuture<Object>> call) {
+        CompletableFuture<Object> fetch;
+        if (hedgePolicy != null && dataFetcher instanceof IdempotentDataFetcher) {
+            fetch = hedgePolicy.hedge(typeName, fieldName,
+                    () -> fetchExecutors.callDataFetcher(dataFetcher, call, dataLoaderDispatcher),
+                    () -> hedgeAttempt(dataFetcher, call));
+        } else {
+            fetch = fetchExecutors.callDataFetcher(dataFetcher, call, dataLoaderDispatcher);
+        }
+        return fetchTimeouts.withTimeout(fetch, path, fetchTimeouts.getTimeout(typeName, fieldName, batched),
+                fetchExecutors.getTimerContinuationExecutor());
+    }
+
+    // started by the scheduler of the hedge policy, which must not call the data fetcher itself
+    private CompletableFuture<Object> hedgeAttempt(DataFetcher dataFetcher, Supplier<CompletableFuture<Object>> call) {
+        CompletableFuture<Object> attempt = fetchExecutors.callDataFetcherAsync(dataFetcher, call, dataLoaderDispatcher);
+        // the level was dispatched long ago: the loads of the attempt are dispatched once it returned
+        if (dataLoaderDispatcher != null) {
+            dataLoaderDispatcher.dispatch();
+        }
+        return attempt;
+    }
+
+    private CompletableFuture<Object> callDataFetcher(DataFetcher dataFetcher, DataFetchingEnvironment environment, ExecutionId executionId, ExecutionPath path) {
         CompletableFuture<Object> result = new CompletableFuture<>();
         try {
-            DataFetcher dataFetcher = fieldDef.getDataFetcher();
             log.debug("'{}' fetching field '{}' using data fetcher '{}'...", executionId, path, dataFetcher.getClass().getName());
             Object fetchedValueRaw = dataFetcher.get(environment);
             log.debug("'{}' field '{}' fetch returned '{}'", executionId, path, fetchedValueRaw == null ? "null" : fetchedValueRaw.getClass().getName());
@@ -0,0 +1,97 @@
+package graphql.old;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * The fetches of one streaming execution which may be in flight at the same time, whatever level of the result they
+ * belong to: a fetch waits for a permit when it is subscribed and returns it when its value (or error) arrived.
+ *
+ * A permit is never held while waiting for another one, so nested sub selections can't starve each other.
+ */
+class FetchPermits {
+
+    private final int maxPermits;
+    // guarded by this
+    private int usedPermits;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    // the fetches are started by one draining thread at a time: a fetch completing synchronously doesn't recurse
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    FetchPermits(int maxPermits) {
+        this.maxPermits = maxPermits;
+    }
+
+    /**
+     * @param fetch subscribed once a permit is available
+     *
+     * @return the value of the fetch
+     */
+    <T> Mono<T> withPermit(Supplier<Mono<T>> fetch) {
+        return Mono.create(sink -> {
+            AtomicReference<Disposable> running = new AtomicReference<>();
+            // a fetch which throws instead of returning a Mono fails like any other and returns its permit
+            Runnable start = () -> running.set(Mono.defer(fetch)
+                    .doFinally(signal -> release())
+                    .subscribe(sink::success, sink::error, sink::success));
+            sink.onCancel(() -> {
+                if (!cancelWaiting(start)) {
+                    Disposable disposable = running.get();
+                    if (disposable != null) {
+                        disposable.dispose();
+                    }
+                }
+            });
+            synchronized (this) {
+                waiting.add(start);
+            }
+            drain();
+        });
+    }
+
+    private synchronized boolean cancelWaiting(Runnable start) {
+        return waiting.remove(start);
+    }
+
+    private void release() {
+        synchronized (this) {
+            usedPermits--;
+        }
+        drain();
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        boolean drained = false;
+        try {
+            do {
+                Runnable start;
+                while ((start = nextStart()) != null) {
+                    start.run();
+                }
+            } while (drainRequests.decrementAndGet() != 0);
+            drained = true;
+        } finally {
+            if (!drained) {
+                // a start failed: the next drain must not return early forever
+                drainRequests.set(0);
+            }
+        }
+    }
+
+    private synchronized Runnable nextStart() {
+        if (usedPermits >= maxPermits || waiting.isEmpty()) {
+            return null;
+        }
+        usedPermits++;
+        return waiting.poll();
+    }
+}
@@ -0,0 +1,76 @@
+package graphql.old;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+import static graphql.Assert.assertNotNull;
+import static graphql.Assert.assertTrue;
+
+/**
+ * Groups the leaves of a streaming execution into {@link ResultLeafFrame}s, so a big result is not sent as one frame
+ * per leaf. A frame is closed when it has {@code maxLeaves} leaves, when its leaves are estimated to be
+ * {@code maxBytes} big as json or {@code maxDelay} after it was opened: the leaves are still delivered progressively.
+ */
+public class LeafFrameWindow {
+
+    private final int maxLeaves;
+    private final int maxBytes;
+    private final Duration maxDelay;
+
+    private LeafFrameWindow(int maxLeaves, int maxBytes, Duration maxDelay) {
+        assertTrue(maxLeaves > 0, "maxLeaves must be positive");
+        assertTrue(maxBytes > 0, "maxBytes must be positive");
+        assertTrue(!assertNotNull(maxDelay).isNegative() && !maxDelay.isZero(), "maxDelay must be positive");
+        this.maxLeaves = maxLeaves;
+        this.maxBytes = maxBytes;
+        this.maxDelay = maxDelay;
+    }
+
+    public static LeafFrameWindow of(int maxLeaves, int maxBytes, Duration maxDelay) {
+        return new LeafFrameWindow(maxLeaves, maxBytes, maxDelay);
+    }
+
+    public int getMaxLeaves() {
+        return maxLeaves;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public Flux<ResultLeafFrame> frame(Flux<ResultLeaf> leaves) {
+        return leaves
+                .windowTimeout(maxLeaves, maxDelay)
+                .concatMap(window -> Flux.defer(() -> {
+                    long[] bytes = new long[1];
+                    return window.bufferUntil(leaf -> {
+                        bytes[0] += estimateSize(leaf);
+                        if (bytes[0] < maxBytes) {
+                            return false;
+                        }
+                        bytes[0] = 0;
+                        return true;
+                    });
+                }))
+                .filter(frameLeaves -> !frameLeaves.isEmpty())
+                .map(ResultLeafFrame::new);
+    }
+
+    // the size of the json of a leaf without writing it: exact enough to bound a frame
+    static int estimateSize(ResultLeaf leaf) {
+        int size = "{\"executionPath\":[],\"value\":}".length();
+        List<Object> executionPath = leaf.getExecutionPath();
+        for (Object segment : executionPath) {
+            size += String.valueOf(segment).length() + 3;
+        }
+        Object value = leaf.getValue();
+        size += value == null ? 4 : String.valueOf(value).length() + 2;
+        return size;
+    }
+}
@@ -1,10 +1,7 @@
 package graphql.old;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import graphql.Common;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
 import graphql.schema.idl.SchemaGenerator;
@@ -22,14 +19,13 @@ import io.rsocket.util.DefaultPayload;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.io.IOException;
 import java.io.Serializable;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.Duration;
 
 public class RSocketGraphQLStreamingExample {
 
     public static void main(String[] args) {
-        ObjectMapper objectMapper = new ObjectMapper();
+        ResultLeafDecoder resultLeafDecoder = new ResultLeafDecoder();
         RSocketFactory.receive()
                 .acceptor(new SocketAcceptorImpl())
                 .transport(TcpServerTransport.create("localhost", 7000))
@@ -44,21 +40,13 @@ public class RSocketGraphQLStreamingExample {
 
         socket
                 .requestStream(DefaultPayload.create("{foo{id bar{id name}}}"))
-                .map(Payload::getDataUtf8)
-                .map(json -> {
-                    try {
-                        return objectMapper.readValue(json, ResultLeaf.class);
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                        throw new RuntimeException(e);
-                    }
+                .map(payload -> resultLeafDecoder.decodeFrame(payload.getData()))
+                .reduceWith(ResultAssembler::singleThreaded, (resultAssembler, resultLeafFrame) -> {
+                    resultAssembler.add(resultLeafFrame);
+                    return resultAssembler;
                 })
-                .reduce(new ConcurrentHashMap<>(), (result, resultLeaf) -> {
-                    Common.insertValueInResult(resultLeaf, result);
-                    return result;
-                })
-                .doOnNext(result -> {
-                    System.out.println("Result: " + result);
+                .doOnNext(resultAssembler -> {
+                    System.out.println("Result: " + resultAssembler.getResult());
                 })
                 .then()
                 .doFinally(signalType -> socket.dispose())
@@ -66,16 +54,16 @@ public class RSocketGraphQLStreamingExample {
                 .block();
     }
 
+    private static final LeafFrameWindow LEAF_FRAME_WINDOW = LeafFrameWindow.of(1000, 64 * 1024, Duration.ofMillis(50));
+
     private static class SocketAcceptorImpl implements SocketAcceptor {
 
-        private ObjectMapper objectMapper;
         GraphQLSchema schema;
         ReactorStreamingExecution reactorStreamingExecution;
 
         public SocketAcceptorImpl() {
             this.schema = createSchema();
             this.reactorStreamingExecution = new ReactorStreamingExecution();
-            this.objectMapper = new ObjectMapper();
         }
 
         @Override
@@ -85,20 +73,16 @@ public class RSocketGraphQLStreamingExample {
                         @Override
                         public Flux<Payload> requestStream(Payload payload) {
                             String query = payload.getDataUtf8();
-                            return executeQuery(query).map(resultLeaf -> {
-                                try {
-                                    return DefaultPayload.create(objectMapper.writeValueAsString(resultLeaf));
-                                } catch (JsonProcessingException e) {
-                                    e.printStackTrace();
-                                    throw new RuntimeException(e);
-                                }
-                            });
+                            // the leaf paths are encoded relative to the previous frames of the same stream
+                            ResultLeafEncoder resultLeafEncoder = new ResultLeafEncoder();
+                            return executeQuery(query).map(resultLeafFrame -> DefaultPayload.create(resultLeafEncoder.encode(resultLeafFrame)));
                         }
                     });
         }
 
-        Flux<ResultLeaf> executeQuery(String query) {
-            return this.reactorStreamingExecution.execute(query, this.schema);
+        // one frame per 1000 leaves, 64kb or 50ms instead of one frame per leaf
+        Flux<ResultLeafFrame> executeQuery(String query) {
+            return LEAF_FRAME_WINDOW.frame(this.reactorStreamingExecution.execute(query, this.schema));
         }
     }
 
@@ -30,6 +30,18 @@ import static graphql.execution.ExecutionStepInfo.newExecutionStepInfo;
 public class ReactorStreamingExecution {
 
     private final FieldCollector fieldCollector = new FieldCollector();
+    private final StreamingDemand streamingDemand;
+
+    public ReactorStreamingExecution() {
+        this(StreamingDemand.DEFAULT);
+    }
+
+    /**
+     * @param streamingDemand bounds the fetches which are done ahead of the demand of a subscriber
+     */
+    public ReactorStreamingExecution(StreamingDemand streamingDemand) {
+        this.streamingDemand = streamingDemand;
+    }
 
     public Flux<ResultLeaf> execute(String query,
                                     GraphQLSchema graphQLSchema) {
@@ -66,6 +78,17 @@ public class ReactorStreamingExecution {
         return executeOperation(executionContext, executionInput.getRoot(), executionContext.getOperationDefinition());
     }
 
+    /**
+     * Like {@link #execute(Document, GraphQLSchema, ExecutionId, ExecutionInput)}, but groups the leaves into frames.
+     */
+    public Flux<ResultLeafFrame> execute(Document document,
+                                         GraphQLSchema graphQLSchema,
+                                         ExecutionId executionId,
+                                         ExecutionInput executionInput,
+                                         LeafFrameWindow leafFrameWindow) {
+        return leafFrameWindow.frame(execute(document, graphQLSchema, executionId, executionInput));
+    }
+
 
     private Flux<ResultLeaf> executeOperation(ExecutionContext executionContext, Object root, OperationDefinition operationDefinition) {
 
@@ -87,7 +110,7 @@ public class ReactorStreamingExecution {
         fieldSubSelection.setFields(fields);
         fieldSubSelection.setExecutionStepInfo(executionInfo);
 
-        ReactorStreamingExecutionStrategy reactorExecutionStrategy = new ReactorStreamingExecutionStrategy(executionContext);
+        ReactorStreamingExecutionStrategy reactorExecutionStrategy = new ReactorStreamingExecutionStrategy(executionContext, streamingDemand);
         return reactorExecutionStrategy.execute(fieldSubSelection);
     }
 
@@ -9,11 +9,8 @@ import graphql.execution.ExecutionContext;
 import graphql.execution.ExecutionStepInfo;
 import graphql.language.Field;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.FluxSink;
-import reactor.core.publisher.Mono;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static graphql.old.ValueFetcher.NULL_VALUE;
 
@@ -23,64 +20,65 @@ public class ReactorStreamingExecutionStrategy {
     ValueFetcher valueFetcher;
 
     private final ExecutionContext executionContext;
+    private final StreamingDemand streamingDemand;
+    private final FetchPermits fetchPermits;
     private FetchedValueAnalyzer fetchedValueAnalyzer;
 
 
     public ReactorStreamingExecutionStrategy(ExecutionContext executionContext) {
+        this(executionContext, StreamingDemand.DEFAULT);
+    }
+
+    public ReactorStreamingExecutionStrategy(ExecutionContext executionContext, StreamingDemand streamingDemand) {
         this.executionContext = executionContext;
+        this.streamingDemand = streamingDemand;
+        this.fetchPermits = new FetchPermits(streamingDemand.getMaxConcurrentFetches());
         this.fetchedValueAnalyzer = new FetchedValueAnalyzer(executionContext);
         this.valueFetcher = new ValueFetcher(executionContext);
         this.executionInfoFactory = new ExecutionStepInfoFactory(executionContext);
     }
 
+    /**
+     * The fetches are only started when the subscriber requests leaves: see {@link StreamingDemand} for how much
+     * work is done ahead of the demand.
+     */
     public Flux<ResultLeaf> execute(FieldSubSelection fieldSubSelection) {
-        return Flux.create(sink -> executeImpl(fieldSubSelection, sink, true));
+        return Flux.defer(() -> resolveSubSelection(fieldSubSelection));
     }
 
-    private void executeImpl(FieldSubSelection fieldSubSelection, FluxSink<ResultLeaf> sink, boolean firstLevel) {
-        fetchAndAnalyze(fieldSubSelection)
-                .subscribe(fetchedValueAnalysis -> convertFetchedValue(fetchedValueAnalysis, sink),
-                        sink::error,
-                        () -> {
-                            if (firstLevel) {
-                                sink.complete();
-                            }
-                        });
+    private Flux<ResultLeaf> resolveSubSelection(FieldSubSelection fieldSubSelection) {
+        return fetchAndAnalyze(fieldSubSelection)
+                .flatMap(this::convertFetchedValue, streamingDemand.getMaxConcurrentFetches(), streamingDemand.getPrefetch());
     }
 
-    private void convertFetchedValue(FetchedValueAnalysis fetchedValueAnalysis, FluxSink<ResultLeaf> sink) {
+    private Flux<ResultLeaf> convertFetchedValue(FetchedValueAnalysis fetchedValueAnalysis) {
         if (fetchedValueAnalysis.isNullValue()) {
-            sink.next(new ResultLeaf(fetchedValueAnalysis.getExecutionStepInfo().getPath(), NULL_VALUE));
-            return;
+            return Flux.just(new ResultLeaf(fetchedValueAnalysis.getExecutionStepInfo().getPath(), NULL_VALUE));
         }
         if (fetchedValueAnalysis.getValueType() == FetchedValueAnalysis.FetchedValueType.OBJECT) {
             FieldSubSelection nextLevelSubSelection = fetchedValueAnalysis.getFieldSubSelection();
-            executeImpl(nextLevelSubSelection, sink, false);
-            return;
+            return resolveSubSelection(nextLevelSubSelection);
         }
         if (fetchedValueAnalysis.getValueType() == FetchedValueAnalysis.FetchedValueType.LIST) {
-            fetchedValueAnalysis
-                    .getChildren()
-                    .forEach(fetchedValueAnalysis1 -> convertFetchedValue(fetchedValueAnalysis1, sink));
-            return;
+            return Flux.fromIterable(fetchedValueAnalysis.getChildren())
+                    .flatMap(this::convertFetchedValue, streamingDemand.getMaxConcurrentFetches(), streamingDemand.getPrefetch());
         }
         ResultLeaf resultLeaf = new ResultLeaf(fetchedValueAnalysis.getExecutionStepInfo().getPath(), fetchedValueAnalysis.getCompletedValue());
-        sink.next(resultLeaf);
+        return Flux.just(resultLeaf);
     }
 
 
+    // the fields are only fetched when they are requested and a permit of the whole stream is available
     private Flux<FetchedValueAnalysis> fetchAndAnalyze(FieldSubSelection fieldSubSelection) {
-        List<Mono<FetchedValueAnalysis>> fetchedValues = fieldSubSelection.getFields().entrySet().stream()
-                .map(entry -> {
+        return Flux.fromIterable(fieldSubSelection.getFields().entrySet())
+                .flatMap(entry -> {
                     List<Field> sameFields = entry.getValue();
                     String name = entry.getKey();
                     ExecutionStepInfo newExecutionStepInfo = executionInfoFactory.newExecutionStepInfoForSubField(sameFields, fieldSubSelection.getExecutionStepInfo());
-                    return valueFetcher
-                            .fetchValue(fieldSubSelection.getSource(), sameFields, newExecutionStepInfo)
+                    return fetchPermits
+                            .withPermit(() -> valueFetcher.fetchValue(fieldSubSelection.getSource(), sameFields, newExecutionStepInfo))
                             .map(fetchValue -> analyseValue(fetchValue, name, sameFields, newExecutionStepInfo));
-                })
-                .collect(Collectors.toList());
-        return Flux.merge(fetchedValues);
+                }, streamingDemand.getMaxConcurrentFetches(), 1);
     }
 
     private FetchedValueAnalysis analyseValue(FetchedValue fetchedValue, String name, List<Field> field, ExecutionStepInfo executionInfo) {
@@ -0,0 +1,235 @@
+package graphql.old;
+
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.NodeUtil;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Assembles the result of a streaming execution from its {@link ResultLeaf}s on the client side.
+ *
+ * The open containers (maps and lists) are kept in a trie keyed by path segment, so a leaf is inserted by looking up
+ * its parent once per path segment instead of walking the result from the root. Lists grow to the highest index
+ * seen, the gaps are null until their leaves arrive.
+ *
+ * An assembler created for the document of the execution orders the fields of every map like the selection sets
+ * (fields of fragments where the fragment is selected), whatever order the leaves arrive in; fields not found in the
+ * document follow in arrival order. Without a document maps keep the order in which the fields arrive.
+ *
+ * A {@link #singleThreaded()} assembler uses plain collections and must only be used by one thread at a time, a
+ * {@link #synchronizedAssembler()} one can be fed from several threads.
+ */
+public class ResultAssembler {
+
+    private final Node root;
+    private final boolean synchronize;
+
+    private ResultAssembler(boolean synchronize, FieldOrder rootOrder) {
+        this.synchronize = synchronize;
+        this.root = new Node(newMap(rootOrder), rootOrder);
+    }
+
+    public static ResultAssembler singleThreaded() {
+        return new ResultAssembler(false, null);
+    }
+
+    public static ResultAssembler synchronizedAssembler() {
+        return new ResultAssembler(true, null);
+    }
+
+    /**
+     * @param document      the executed document
+     * @param operationName the executed operation or null
+     *
+     * @return an assembler ordering the fields like the selection sets of the operation
+     */
+    public static ResultAssembler singleThreaded(Document document, String operationName) {
+        return new ResultAssembler(false, FieldOrder.of(document, operationName));
+    }
+
+    /**
+     * @param document      the executed document
+     * @param operationName the executed operation or null
+     *
+     * @return an assembler ordering the fields like the selection sets of the operation
+     */
+    public static ResultAssembler synchronizedAssembler(Document document, String operationName) {
+        return new ResultAssembler(true, FieldOrder.of(document, operationName));
+    }
+
+    public void add(ResultLeafFrame frame) {
+        addAll(frame.getLeaves());
+    }
+
+    public void addAll(List<ResultLeaf> leaves) {
+        if (synchronize) {
+            synchronized (this) {
+                leaves.forEach(this::insert);
+            }
+        } else {
+            leaves.forEach(this::insert);
+        }
+    }
+
+    public void add(ResultLeaf leaf) {
+        if (synchronize) {
+            synchronized (this) {
+                insert(leaf);
+            }
+        } else {
+            insert(leaf);
+        }
+    }
+
+    /**
+     * @return the result assembled so far: it is changed by further leaves
+     */
+    public Map<String, Object> getResult() {
+        if (synchronize) {
+            synchronized (this) {
+                return asResult();
+            }
+        }
+        return asResult();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> asResult() {
+        return (Map<String, Object>) root.container;
+    }
+
+    private void insert(ResultLeaf leaf) {
+        List<Object> executionPath = leaf.getExecutionPath();
+        int last = executionPath.size() - 1;
+        Node parent = root;
+        for (int i = 0; i < last; i++) {
+            parent = parent.child(executionPath.get(i), executionPath.get(i + 1));
+        }
+        Object value = leaf.getValue() == ValueFetcher.NULL_VALUE ? null : leaf.getValue();
+        put(parent.container, executionPath.get(last), value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Object container, Object segment, Object value) {
+        if (segment instanceof Integer) {
+            ArrayList<Object> list = (ArrayList<Object>) container;
+            int index = (Integer) segment;
+            if (index < list.size()) {
+                list.set(index, value);
+                return;
+            }
+            list.ensureCapacity(index + 1);
+            while (list.size() < index) {
+                list.add(null);
+            }
+            list.add(value);
+        } else {
+            ((Map<Object, Object>) container).put(segment, value);
+        }
+    }
+
+    private static Map<String, Object> newMap(FieldOrder order) {
+        return order == null ? new LinkedHashMap<>() : new TreeMap<>(order);
+    }
+
+    private static class Node {
+        private final Object container;
+        // the order of the fields of the maps at and below this node or null
+        private final FieldOrder order;
+        private Map<Object, Node> children;
+
+        private Node(Object container, FieldOrder order) {
+            this.container = container;
+            this.order = order;
+        }
+
+        // the child container at segment: a list when the next segment is an index, otherwise a map
+        private Node child(Object segment, Object nextSegment) {
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            Node child = children.get(segment);
+            if (child == null) {
+                // list elements have the selection of their list field
+                FieldOrder childOrder = order == null || segment instanceof Integer ? order : order.child((String) segment);
+                Object childContainer;
+                if (nextSegment instanceof Integer) {
+                    childContainer = new ArrayList<>(Math.max((Integer) nextSegment + 1, 10));
+                } else {
+                    childContainer = newMap(childOrder);
+                }
+                child = new Node(childContainer, childOrder);
+                children.put(segment, child);
+                put(container, segment, childContainer);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * The response keys of a selection set in selection order, with the merged sub selections of their fields. A key
+     * which is not selected gets the next index when it is first compared: the order is only extended under the lock
+     * of the assembler.
+     */
+    private static class FieldOrder implements Comparator<String> {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final Map<String, FieldOrder> children = new HashMap<>();
+
+        static FieldOrder of(Document document, String operationName) {
+            NodeUtil.GetOperationResult operation = NodeUtil.getOperation(document, operationName);
+            FieldOrder order = new FieldOrder();
+            order.addSelections(operation.operationDefinition.getSelectionSet(), operation.fragmentsByName, new ArrayList<>());
+            return order;
+        }
+
+        private void addSelections(SelectionSet selectionSet, Map<String, FragmentDefinition> fragmentsByName, List<String> visitedFragments) {
+            if (selectionSet == null) {
+                return;
+            }
+            for (Selection selection : selectionSet.getSelections()) {
+                if (selection instanceof Field) {
+                    Field field = (Field) selection;
+                    String key = field.getAlias() != null ? field.getAlias() : field.getName();
+                    index(key);
+                    child(key).addSelections(field.getSelectionSet(), fragmentsByName, visitedFragments);
+                } else if (selection instanceof InlineFragment) {
+                    addSelections(((InlineFragment) selection).getSelectionSet(), fragmentsByName, visitedFragments);
+                } else if (selection instanceof FragmentSpread) {
+                    String name = ((FragmentSpread) selection).getName();
+                    FragmentDefinition fragmentDefinition = fragmentsByName.get(name);
+                    // guards against fragment cycles of invalid documents
+                    if (fragmentDefinition != null && !visitedFragments.contains(name)) {
+                        visitedFragments.add(name);
+                        addSelections(fragmentDefinition.getSelectionSet(), fragmentsByName, visitedFragments);
+                        visitedFragments.remove(visitedFragments.size() - 1);
+                    }
+                }
+            }
+        }
+
+        private int index(String key) {
+            return indexes.computeIfAbsent(key, k -> indexes.size());
+        }
+
+        private FieldOrder child(String key) {
+            return children.computeIfAbsent(key, k -> new FieldOrder());
+        }
+
+        @Override
+        public int compare(String key1, String key2) {
+            return Integer.compare(index(key1), index(key2));
+        }
+    }
+}
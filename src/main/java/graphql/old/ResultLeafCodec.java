@@ -0,0 +1,40 @@
+package graphql.old;
+
+/**
+ * The binary format of a leaf stream written by {@link ResultLeafEncoder} and read by {@link ResultLeafDecoder}.
+ *
+ * A stream is a sequence of records. Paths are not repeated: every path prefix gets an id the first time it is used
+ * (the root path has id 0) and is then referenced by it. The same goes for field names.
+ *
+ * <pre>
+ * record  := PATH parentId segment            defines the path with the next path id
+ *          | LEAF parentId segment value
+ * segment := varint (index &lt;&lt; 1 | 1)
+ *          | varint (nameId &lt;&lt; 1) [string]   the string follows when nameId is the next name id
+ * value   := NULL | FALSE | TRUE | INT zigzag-varint | LONG zigzag-varint | DOUBLE 8 bytes | STRING string
+ *          | BIG_INTEGER string | BIG_DECIMAL string
+ * string  := varint length, utf-8 bytes
+ * </pre>
+ *
+ * Encoder and decoder are stateful: the frames of a stream must be decoded in the order they were encoded.
+ */
+final class ResultLeafCodec {
+
+    static final byte PATH = 1;
+    static final byte LEAF = 2;
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte STRING = 6;
+    static final byte BIG_INTEGER = 7;
+    static final byte BIG_DECIMAL = 8;
+
+    static final int ROOT_PATH_ID = 0;
+
+    private ResultLeafCodec() {
+    }
+}
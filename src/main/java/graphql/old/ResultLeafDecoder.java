@@ -0,0 +1,145 @@
+package graphql.old;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static graphql.Assert.assertShouldNeverHappen;
+import static graphql.Assert.assertTrue;
+import static graphql.old.ResultLeafCodec.BIG_DECIMAL;
+import static graphql.old.ResultLeafCodec.BIG_INTEGER;
+import static graphql.old.ResultLeafCodec.DOUBLE;
+import static graphql.old.ResultLeafCodec.FALSE;
+import static graphql.old.ResultLeafCodec.INT;
+import static graphql.old.ResultLeafCodec.LEAF;
+import static graphql.old.ResultLeafCodec.LONG;
+import static graphql.old.ResultLeafCodec.NULL;
+import static graphql.old.ResultLeafCodec.PATH;
+import static graphql.old.ResultLeafCodec.STRING;
+import static graphql.old.ResultLeafCodec.TRUE;
+
+/**
+ * Decodes the frames written by a {@link ResultLeafEncoder}, in the order they were encoded. Not thread safe.
+ */
+public class ResultLeafDecoder {
+
+    // index = path id
+    private final List<List<Object>> paths = new ArrayList<>();
+    // index = name id
+    private final List<String> names = new ArrayList<>();
+
+    public ResultLeafDecoder() {
+        paths.add(Collections.emptyList());
+    }
+
+    public ResultLeafFrame decodeFrame(ByteBuffer buffer) {
+        return new ResultLeafFrame(decode(buffer));
+    }
+
+    public List<ResultLeaf> decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    public List<ResultLeaf> decode(ByteBuffer buffer) {
+        List<ResultLeaf> leaves = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            byte record = buffer.get();
+            List<Object> parent = readPath(buffer);
+            Object segment = readSegment(buffer);
+            List<Object> path = new ArrayList<>(parent.size() + 1);
+            path.addAll(parent);
+            path.add(segment);
+            if (record == PATH) {
+                paths.add(Collections.unmodifiableList(path));
+            } else if (record == LEAF) {
+                ResultLeaf leaf = new ResultLeaf();
+                leaf.setExecutionPath(path);
+                leaf.setValue(readValue(buffer));
+                leaves.add(leaf);
+            } else {
+                assertShouldNeverHappen("unknown record %d", record);
+            }
+        }
+        return leaves;
+    }
+
+    private List<Object> readPath(ByteBuffer buffer) {
+        long pathId = readVarint(buffer);
+        assertTrue(pathId < paths.size(), "unknown path id " + pathId + ": the frames must be decoded in order");
+        return paths.get((int) pathId);
+    }
+
+    private Object readSegment(ByteBuffer buffer) {
+        long segment = readVarint(buffer);
+        if ((segment & 1) == 1) {
+            return (int) (segment >>> 1);
+        }
+        int nameId = (int) (segment >>> 1);
+        if (nameId == names.size()) {
+            names.add(readString(buffer));
+        }
+        assertTrue(nameId < names.size(), "unknown name id " + nameId + ": the frames must be decoded in order");
+        return names.get(nameId);
+    }
+
+    private Object readValue(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+            case NULL:
+                return null;
+            case FALSE:
+                return false;
+            case TRUE:
+                return true;
+            case INT:
+                return (int) readZigzag(buffer);
+            case LONG:
+                return readZigzag(buffer);
+            case DOUBLE:
+                return buffer.getDouble();
+            case STRING:
+                return readString(buffer);
+            case BIG_INTEGER:
+                return new BigInteger(readString(buffer));
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(buffer));
+            default:
+                return assertShouldNeverHappen("unknown value type %d", type);
+        }
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = (int) readVarint(buffer);
+        String string;
+        if (buffer.hasArray()) {
+            string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return string;
+    }
+
+    private long readZigzag(ByteBuffer buffer) {
+        long value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
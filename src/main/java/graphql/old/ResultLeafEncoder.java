@@ -0,0 +1,144 @@
+package graphql.old;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static graphql.old.ResultLeafCodec.BIG_DECIMAL;
+import static graphql.old.ResultLeafCodec.BIG_INTEGER;
+import static graphql.old.ResultLeafCodec.DOUBLE;
+import static graphql.old.ResultLeafCodec.FALSE;
+import static graphql.old.ResultLeafCodec.INT;
+import static graphql.old.ResultLeafCodec.LEAF;
+import static graphql.old.ResultLeafCodec.LONG;
+import static graphql.old.ResultLeafCodec.NULL;
+import static graphql.old.ResultLeafCodec.PATH;
+import static graphql.old.ResultLeafCodec.ROOT_PATH_ID;
+import static graphql.old.ResultLeafCodec.STRING;
+import static graphql.old.ResultLeafCodec.TRUE;
+
+/**
+ * Encodes the leaves of one result stream in the compact format of {@link ResultLeafCodec}: use one encoder per
+ * stream and decode its frames with one {@link ResultLeafDecoder}. Not thread safe.
+ */
+public class ResultLeafEncoder {
+
+    private final PathNode rootPath = new PathNode(ROOT_PATH_ID);
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private int nextPathId = ROOT_PATH_ID + 1;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+    public byte[] encode(ResultLeafFrame frame) {
+        return encode(frame.getLeaves());
+    }
+
+    public byte[] encode(List<ResultLeaf> leaves) {
+        out.reset();
+        for (ResultLeaf leaf : leaves) {
+            writeLeaf(leaf);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeLeaf(ResultLeaf leaf) {
+        List<Object> executionPath = leaf.getExecutionPath();
+        PathNode parent = rootPath;
+        for (int i = 0; i < executionPath.size() - 1; i++) {
+            parent = childPath(parent, executionPath.get(i));
+        }
+        out.write(LEAF);
+        writeVarint(parent.id);
+        writeSegment(executionPath.get(executionPath.size() - 1));
+        writeValue(leaf.getValue());
+    }
+
+    private PathNode childPath(PathNode parent, Object segment) {
+        PathNode child = parent.children.get(segment);
+        if (child == null) {
+            child = new PathNode(nextPathId++);
+            parent.children.put(segment, child);
+            out.write(PATH);
+            writeVarint(parent.id);
+            writeSegment(segment);
+        }
+        return child;
+    }
+
+    private void writeSegment(Object segment) {
+        if (segment instanceof Integer) {
+            writeVarint(((Integer) segment).longValue() << 1 | 1);
+            return;
+        }
+        String name = (String) segment;
+        Integer nameId = nameIds.get(name);
+        if (nameId != null) {
+            writeVarint((long) nameId << 1);
+            return;
+        }
+        nameId = nameIds.size();
+        nameIds.put(name, nameId);
+        writeVarint((long) nameId << 1);
+        writeString(name);
+    }
+
+    private void writeValue(Object value) {
+        if (value == null || value == ValueFetcher.NULL_VALUE) {
+            out.write(NULL);
+        } else if (value instanceof Boolean) {
+            out.write((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.write(INT);
+            writeZigzag(((Number) value).longValue());
+        } else if (value instanceof Long) {
+            out.write(LONG);
+            writeZigzag((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            out.write(DOUBLE);
+            long bits = Double.doubleToLongBits(((Number) value).doubleValue());
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        } else if (value instanceof BigInteger) {
+            out.write(BIG_INTEGER);
+            writeString(value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.write(BIG_DECIMAL);
+            writeString(value.toString());
+        } else {
+            out.write(STRING);
+            writeString(value.toString());
+        }
+    }
+
+    private void writeString(String string) {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private void writeZigzag(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static class PathNode {
+        private final int id;
+        private final Map<Object, PathNode> children = new HashMap<>();
+
+        private PathNode(int id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package graphql.old;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of {@link ResultLeaf}s which is sent as one frame (see {@link LeafFrameWindow}).
+ */
+public class ResultLeafFrame {
+    private List<ResultLeaf> leaves;
+
+    public ResultLeafFrame() {
+        this.leaves = new ArrayList<>();
+    }
+
+    public ResultLeafFrame(List<ResultLeaf> leaves) {
+        this.leaves = leaves;
+    }
+
+    public void setLeaves(List<ResultLeaf> leaves) {
+        this.leaves = leaves;
+    }
+
+    public List<ResultLeaf> getLeaves() {
+        return leaves;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultLeafFrame{" +
+                "leaves=" + leaves +
+                '}';
+    }
+}
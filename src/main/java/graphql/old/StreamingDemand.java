@@ -0,0 +1,40 @@
+package graphql.old;
+
+import static graphql.Assert.assertTrue;
+
+/**
+ * Bounds the work of a {@link ReactorStreamingExecutionStrategy} which is done ahead of the demand of its subscriber.
+ *
+ * At most {@code maxConcurrentFetches} fetches are in flight in the whole stream, whatever their depth: they share
+ * one counter of permits. Every sub selection (and list) resolves at most {@code maxConcurrentFetches} children at a
+ * time and buffers at most {@code prefetch} leaves of each of them; further fetches are only started when the
+ * subscriber requests more leaves. A slow subscriber therefore holds back the execution instead of the whole result
+ * being buffered. The leaves buffered ahead of the demand still grow with the depth of the document, so deep documents
+ * should use a small prefetch.
+ */
+public class StreamingDemand {
+
+    public static final StreamingDemand DEFAULT = of(16, 32);
+
+    private final int maxConcurrentFetches;
+    private final int prefetch;
+
+    private StreamingDemand(int maxConcurrentFetches, int prefetch) {
+        assertTrue(maxConcurrentFetches > 0, "maxConcurrentFetches must be positive");
+        assertTrue(prefetch > 0, "prefetch must be positive");
+        this.maxConcurrentFetches = maxConcurrentFetches;
+        this.prefetch = prefetch;
+    }
+
+    public static StreamingDemand of(int maxConcurrentFetches, int prefetch) {
+        return new StreamingDemand(maxConcurrentFetches, prefetch);
+    }
+
+    public int getMaxConcurrentFetches() {
+        return maxConcurrentFetches;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+}
@@ -2,8 +2,9 @@ package graphql.old;
 
 
 import graphql.AbsoluteGraphQLError;
-import graphql.Assert;
 import graphql.BatchedDataFetcher;
+import graphql.BatchedDataFetcherResult;
+import graphql.BatchedDataFetchingEnvironment;
 import graphql.ExceptionWhileDataFetching;
 import graphql.FetchedValue;
 import graphql.GraphQLError;
@@ -35,6 +36,7 @@ import java.util.Map;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
+import static graphql.BatchedDataFetchingEnvironment.newBatchedDataFetchingEnvironment;
 import static graphql.schema.DataFetchingEnvironmentBuilder.newDataFetchingEnvironment;
 
 public class ValueFetcher {
@@ -53,42 +55,69 @@ public class ValueFetcher {
 
 
     public Mono<List<FetchedValue>> fetchBatchedValues(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
-        System.out.println("Fetch batch values size: " + sources.size());
-        ExecutionStepInfo executionStepInfo = executionInfos.get(0);
-        if (isDataFetcherBatched(sameFields, executionStepInfo)) {
-            //TODO: the stepInfo is not correct for all values: how to give the DF all executionInfos?
-            return fetchValue(sources, sameFields, executionStepInfo).map(fetchedValue -> extractBatchedValues(fetchedValue, sources.size()));
-        } else {
-            List<Mono<FetchedValue>> fetchedValues = new ArrayList<>();
-            for (int i = 0; i < sources.size(); i++) {
-                fetchedValues.add(fetchValue(sources.get(i), sameFields, executionInfos.get(i)));
-            }
-            return Flux.merge(fetchedValues).collectList();
+        if (executionInfos.get(0).getFieldDefinition().getDataFetcher() instanceof BatchedDataFetcher) {
+            return fetchValuesWithBatchedDataFetcher(sources, sameFields, executionInfos);
+        }
+        List<Mono<FetchedValue>> fetchedValues = new ArrayList<>();
+        for (int i = 0; i < sources.size(); i++) {
+            fetchedValues.add(fetchValue(sources.get(i), sameFields, executionInfos.get(i)));
         }
+        return Flux.merge(fetchedValues).collectList();
+    }
+
+    // one call of the batched data fetcher for all sources
+    private Mono<List<FetchedValue>> fetchValuesWithBatchedDataFetcher(List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        Field field = sameFields.get(0);
+        GraphQLFieldDefinition fieldDef = executionInfos.get(0).getFieldDefinition();
+        // the arguments are already resolved for every step info
+        List<Map<String, Object>> arguments = executionInfos.stream()
+                .map(ExecutionStepInfo::getArguments)
+                .collect(Collectors.toList());
+
+        BatchedDataFetchingEnvironment environment = newBatchedDataFetchingEnvironment(executionContext)
+                .sources(sources)
+                .executionStepInfos(executionInfos)
+                .arguments(arguments)
+                .fields(sameFields)
+                .fieldDefinition(fieldDef)
+                .fieldType(fieldDef.getType())
+                .build();
+
+        ExecutionId executionId = executionContext.getExecutionId();
+        ExecutionPath path = executionInfos.get(0).getPath();
+        BatchedDataFetcher dataFetcher = (BatchedDataFetcher) fieldDef.getDataFetcher();
+        return Mono
+                .create(sink -> {
+                    try {
+                        log.debug("'{}' fetching field '{}' for {} sources using batched data fetcher '{}'...", executionId, path, sources.size(), dataFetcher.getClass().getName());
+                        handleFetchedValue(dataFetcher.get(environment), sink);
+                    } catch (Exception e) {
+                        log.debug(String.format("'%s', field '%s' batched fetch threw exception", executionId, path), e);
+                        sink.error(e);
+                    }
+                })
+                // a batched data fetcher returning null fetched null for every source
+                .map(rawBatchedResult -> extractBatchedValues(rawBatchedResult == NULL_VALUE ? null : rawBatchedResult, sources, sameFields, executionInfos))
+                .onErrorResume(exception -> Mono.just(executionInfos.stream()
+                        .map(executionInfo -> new FetchedValue(null, null,
+                                Collections.singletonList(new ExceptionWhileDataFetching(executionInfo.getPath(), exception, field.getSourceLocation()))))
+                        .collect(Collectors.toList())));
     }
 
-    private List<FetchedValue> extractBatchedValues(FetchedValue fetchedValueContainingList, int expectedSize) {
-        List<Object> list = (List<Object>) fetchedValueContainingList.getFetchedValue();
-        Assert.assertTrue(list.size() == expectedSize, "Unexpected result size");
+    private List<FetchedValue> extractBatchedValues(Object rawBatchedResult, List<Object> sources, List<Field> sameFields, List<ExecutionStepInfo> executionInfos) {
+        BatchedDataFetcherResult batchedResult = BatchedDataFetcherResult.from(rawBatchedResult);
+        List<Object> values = batchedResult.getValues(sources);
         List<FetchedValue> result = new ArrayList<>();
-        for (int i = 0; i < list.size(); i++) {
-            List<GraphQLError> errors;
-            if (i == 0) {
-                errors = fetchedValueContainingList.getErrors();
-            } else {
-                errors = Collections.emptyList();
-            }
-            FetchedValue fetchedValue = new FetchedValue(list.get(0), fetchedValueContainingList.getRawFetchedValue(), errors);
-            result.add(fetchedValue);
+        for (int i = 0; i < values.size(); i++) {
+            // the errors of the batch are reported once
+            List<GraphQLError> errors = i == 0 ? batchedResult.getErrors() : Collections.emptyList();
+            Object value = values.get(i);
+            FetchedValue fetchedValue = unboxPossibleDataFetcherResult(sameFields, executionInfos.get(i).getPath(), new FetchedValue(value, value, errors));
+            result.add(unboxPossibleOptional(fetchedValue));
         }
         return result;
     }
 
-    private boolean isDataFetcherBatched(List<Field> sameFields, ExecutionStepInfo executionStepInfo) {
-        GraphQLFieldDefinition fieldDef = executionStepInfo.getFieldDefinition();
-        return fieldDef.getDataFetcher() instanceof BatchedDataFetcher;
-    }
-
     public Mono<FetchedValue> fetchValue(Object source, List<Field> sameFields, ExecutionStepInfo executionInfo) {
         Field field = sameFields.get(0);
         GraphQLFieldDefinition fieldDef = executionInfo.getFieldDefinition();
@@ -1,12 +1,26 @@
 package graphql.result;
 
+/**
+ * One step from a node up to its parent. Breadcrumbs are linked to the breadcrumb of their parent node, so the
+ * breadcrumbs of all nodes below the same parent share the chain from the parent up to the root.
+ */
 public class Breadcrumb {
     public final ExecutionResultNode node;
     public final ExecutionResultNodePosition position;
+    // the breadcrumb of node itself: null if node is the root
+    public final Breadcrumb parent;
+    // the number of breadcrumbs from this one up to the root
+    public final int depth;
 
     public Breadcrumb(ExecutionResultNode node, ExecutionResultNodePosition position) {
+        this(node, position, null);
+    }
+
+    public Breadcrumb(ExecutionResultNode node, ExecutionResultNodePosition position, Breadcrumb parent) {
         this.node = node;
         this.position = position;
+        this.parent = parent;
+        this.depth = parent == null ? 1 : parent.depth + 1;
     }
 
     @Override
@@ -16,4 +30,4 @@ public class Breadcrumb {
                 ", position=" + position +
                 '}';
     }
-}
\ No newline at end of file
+}
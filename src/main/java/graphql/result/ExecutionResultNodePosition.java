@@ -2,6 +2,8 @@ package graphql.result;
 
 import graphql.Assert;
 
+import java.util.Objects;
+
 public class ExecutionResultNodePosition {
 
     private final Integer index;
@@ -33,6 +35,20 @@ public class ExecutionResultNodePosition {
         return Assert.assertNotNull(key);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExecutionResultNodePosition that = (ExecutionResultNodePosition) o;
+        return Objects.equals(index, that.index) &&
+                Objects.equals(key, that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, key);
+    }
+
     @Override
     public String toString() {
         return index != null ? index.toString() : key;
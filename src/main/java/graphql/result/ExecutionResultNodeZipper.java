@@ -8,50 +8,80 @@ import java.util.List;
 public class ExecutionResultNodeZipper {
 
     private final ExecutionResultNode curNode;
-    // from curNode upwards
-    private final List<Breadcrumb> breadcrumbList;
+    // from curNode upwards: null if curNode is the root
+    private final Breadcrumb breadcrumb;
 
-    public ExecutionResultNodeZipper(ExecutionResultNode curNode, List<Breadcrumb> breadcrumbs) {
-        Assert.assertNotNull(breadcrumbs, "breadcrumbs can't be null");
+    public ExecutionResultNodeZipper(ExecutionResultNode curNode, Breadcrumb breadcrumb) {
         Assert.assertNotNull(curNode, "curNode can't be null");
         this.curNode = curNode;
-        this.breadcrumbList = new ArrayList<>(breadcrumbs);
+        this.breadcrumb = breadcrumb;
+    }
+
+    public ExecutionResultNodeZipper(ExecutionResultNode curNode, List<Breadcrumb> breadcrumbs) {
+        this(curNode, toBreadcrumbChain(Assert.assertNotNull(breadcrumbs, "breadcrumbs can't be null")));
+    }
+
+    private static Breadcrumb toBreadcrumbChain(List<Breadcrumb> breadcrumbs) {
+        Breadcrumb result = null;
+        for (int i = breadcrumbs.size() - 1; i >= 0; i--) {
+            Breadcrumb breadcrumb = breadcrumbs.get(i);
+            result = new Breadcrumb(breadcrumb.node, breadcrumb.position, result);
+        }
+        return result;
     }
 
     public ExecutionResultNode getCurNode() {
         return curNode;
     }
 
+    /**
+     * @return the breadcrumb of the current node or null if the current node is the root
+     */
+    public Breadcrumb getBreadcrumb() {
+        return breadcrumb;
+    }
+
+    public int getDepth() {
+        return breadcrumb == null ? 0 : breadcrumb.depth;
+    }
+
     public List<Breadcrumb> getBreadcrumbList() {
-        return new ArrayList<>(breadcrumbList);
+        List<Breadcrumb> result = new ArrayList<>(getDepth());
+        for (Breadcrumb cur = breadcrumb; cur != null; cur = cur.parent) {
+            result.add(cur);
+        }
+        return result;
     }
 
     public ExecutionResultNode getRootNode() {
-        if (breadcrumbList.size() == 0) {
+        if (breadcrumb == null) {
             return curNode;
         }
-        return breadcrumbList.get(breadcrumbList.size() - 1).node;
+        Breadcrumb cur = breadcrumb;
+        while (cur.parent != null) {
+            cur = cur.parent;
+        }
+        return cur.node;
     }
 
     public ExecutionResultNode getParent() {
-        return breadcrumbList.get(0).node;
+        return breadcrumb.node;
     }
 
     public ExecutionResultNodeZipper withNode(ExecutionResultNode newNode) {
-        return new ExecutionResultNodeZipper(newNode, breadcrumbList);
+        return new ExecutionResultNodeZipper(newNode, breadcrumb);
     }
 
     public ExecutionResultNodeZipper moveUp() {
-        Assert.assertTrue(breadcrumbList.size() > 0, "no parent");
-        Breadcrumb breadCrumb = breadcrumbList.get(0);
-        ExecutionResultNode parent = breadCrumb.node.withChild(curNode, breadCrumb.position);
-        return new ExecutionResultNodeZipper(parent, breadcrumbList.subList(1, breadcrumbList.size()));
+        Assert.assertTrue(breadcrumb != null, "no parent");
+        ExecutionResultNode parent = breadcrumb.node.withChild(curNode, breadcrumb.position);
+        return new ExecutionResultNodeZipper(parent, breadcrumb.parent);
     }
 
     public ExecutionResultNode toRootNode() {
         ExecutionResultNode curRoot = curNode;
-        for (Breadcrumb breadcrumb : breadcrumbList) {
-            curRoot = breadcrumb.node.withChild(curRoot, breadcrumb.position);
+        for (Breadcrumb cur = breadcrumb; cur != null; cur = cur.parent) {
+            curRoot = cur.node.withChild(curRoot, cur.position);
         }
         return curRoot;
     }
@@ -61,7 +91,7 @@ public class ExecutionResultNodeZipper {
     public String toString() {
         return "ExecutionResultNodeZipper{" +
                 "curNode=" + curNode +
-                ", breadcrumbList=" + breadcrumbList +
+                ", breadcrumbList=" + getBreadcrumbList() +
                 '}';
     }
-}
\ No newline at end of file
+}
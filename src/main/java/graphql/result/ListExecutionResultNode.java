@@ -12,15 +12,31 @@ import java.util.Optional;
 public class ListExecutionResultNode extends ExecutionResultNode {
 
     private final List<ExecutionResultNode> children;
+    // the number of children which are null although they are non nullable
+    private final int nonNullableChildCount;
 
     public ListExecutionResultNode(FetchedValueAnalysis fetchedValueAnalysis,
                                    List<ExecutionResultNode> children) {
-        super(fetchedValueAnalysis, ResultNodesUtil.newNullableException(fetchedValueAnalysis, children));
+        this(fetchedValueAnalysis, children, ResultNodesUtil.countNonNullableExceptions(children));
+    }
+
+    private ListExecutionResultNode(FetchedValueAnalysis fetchedValueAnalysis,
+                                    List<ExecutionResultNode> children,
+                                    int nonNullableChildCount) {
+        super(fetchedValueAnalysis, ResultNodesUtil.nonNullableExceptionToPropagate(fetchedValueAnalysis, children, nonNullableChildCount));
         this.children = Assert.assertNotNull(children);
+        this.nonNullableChildCount = nonNullableChildCount;
         children.forEach(Assert::assertNotNull);
     }
 
+    public boolean hasChildNonNullableException() {
+        return nonNullableChildCount > 0;
+    }
+
     public Optional<NonNullableFieldWasNullException> getChildNonNullableException() {
+        if (nonNullableChildCount == 0) {
+            return Optional.empty();
+        }
         return children.stream()
                 .filter(executionResultNode -> executionResultNode.getNonNullableFieldWasNullException() != null)
                 .map(ExecutionResultNode::getNonNullableFieldWasNullException)
@@ -35,15 +51,21 @@ public class ListExecutionResultNode extends ExecutionResultNode {
     @Override
     public ExecutionResultNode withChild(ExecutionResultNode child, ExecutionResultNodePosition position) {
         List<ExecutionResultNode> newChildren = new ArrayList<>(this.children);
-        newChildren.set(position.getIndex(), child);
-        return new ListExecutionResultNode(getFetchedValueAnalysis(), newChildren);
+        ExecutionResultNode oldChild = newChildren.set(position.getIndex(), child);
+        int newNonNullableChildCount = nonNullableChildCount
+                - ResultNodesUtil.nonNullableExceptionCount(oldChild)
+                + ResultNodesUtil.nonNullableExceptionCount(child);
+        return new ListExecutionResultNode(getFetchedValueAnalysis(), newChildren, newNonNullableChildCount);
     }
 
     @Override
     public ExecutionResultNode withNewChildren(Map<ExecutionResultNodePosition, ExecutionResultNode> newChildren) {
         List<ExecutionResultNode> mergedChildren = new ArrayList<>(this.children);
-        newChildren.entrySet().stream().forEach(entry -> mergedChildren.set(entry.getKey().getIndex(), entry.getValue()));
-
-        return new ListExecutionResultNode(getFetchedValueAnalysis(), mergedChildren);
+        int newNonNullableChildCount = nonNullableChildCount;
+        for (Map.Entry<ExecutionResultNodePosition, ExecutionResultNode> entry : newChildren.entrySet()) {
+            ExecutionResultNode oldChild = mergedChildren.set(entry.getKey().getIndex(), entry.getValue());
+            newNonNullableChildCount += ResultNodesUtil.nonNullableExceptionCount(entry.getValue()) - ResultNodesUtil.nonNullableExceptionCount(oldChild);
+        }
+        return new ListExecutionResultNode(getFetchedValueAnalysis(), mergedChildren, newNonNullableChildCount);
     }
 }
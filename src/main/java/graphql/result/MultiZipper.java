@@ -3,11 +3,9 @@ package graphql.result;
 import graphql.Assert;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class MultiZipper {
 
@@ -20,25 +18,32 @@ public class MultiZipper {
         this.zippers = new ArrayList<>(Assert.assertNotNull(zippers));
     }
 
+    /**
+     * Puts all zippers back into the common root.
+     *
+     * The paths from the common root to the zippers are merged into one tree indexed by the breadcrumb positions,
+     * so every node on the way is rebuilt exactly once (with all its new children at the same time) and the whole
+     * reassembly is linear in the number of nodes on these paths.
+     */
     public ExecutionResultNode toRootNode() {
         if (zippers.size() == 0) return commonRoot;
 
-        List<ExecutionResultNodeZipper> curZippers = new ArrayList<>(zippers);
-        while (curZippers.size() > 1) {
-
-            List<ExecutionResultNodeZipper> deepestZippers = getDeepestZippers(curZippers);
-            Map<ExecutionResultNode, List<ExecutionResultNodeZipper>> sameParent = zipperWithSameParent(deepestZippers);
-
-            List<ExecutionResultNodeZipper> newZippers = new ArrayList<>();
-            for (Map.Entry<ExecutionResultNode, List<ExecutionResultNodeZipper>> entry : sameParent.entrySet()) {
-                ExecutionResultNodeZipper newZipper = moveUp(entry.getKey(), entry.getValue());
-                newZippers.add(newZipper);
+        PathNode rootPathNode = new PathNode(commonRoot);
+        for (ExecutionResultNodeZipper zipper : zippers) {
+            Breadcrumb[] breadcrumbs = new Breadcrumb[zipper.getDepth()];
+            Breadcrumb breadcrumb = zipper.getBreadcrumb();
+            for (int i = 0; i < breadcrumbs.length; i++) {
+                breadcrumbs[i] = breadcrumb;
+                breadcrumb = breadcrumb.parent;
+            }
+            PathNode curPathNode = rootPathNode;
+            for (int i = breadcrumbs.length - 1; i >= 0; i--) {
+                ExecutionResultNode child = i > 0 ? breadcrumbs[i - 1].node : zipper.getCurNode();
+                curPathNode = curPathNode.child(breadcrumbs[i].position, child);
             }
-            curZippers.removeAll(deepestZippers);
-            curZippers.addAll(newZippers);
+            curPathNode.replacement = zipper.getCurNode();
         }
-        Assert.assertTrue(curZippers.size() == 1, "illegal state");
-        return curZippers.get(0).toRootNode();
+        return rootPathNode.rebuild();
     }
 
     public ExecutionResultNode getCommonRoot() {
@@ -62,26 +67,28 @@ public class MultiZipper {
     }
 
 
-    private List<ExecutionResultNodeZipper> getDeepestZippers(List<ExecutionResultNodeZipper> zippers) {
-        Map<Integer, List<ExecutionResultNodeZipper>> grouped =
-                zippers.stream().collect(Collectors.groupingBy(executionResultNodeZipper -> executionResultNodeZipper.getBreadcrumbList().size()));
-        Integer maxLevel = Collections.max(grouped.keySet());
-        return grouped.get(maxLevel);
-    }
+    private static class PathNode {
+        private final ExecutionResultNode node;
+        private ExecutionResultNode replacement;
+        private final Map<ExecutionResultNodePosition, PathNode> children = new LinkedHashMap<>();
 
-    private ExecutionResultNodeZipper moveUp(ExecutionResultNode parent, List<ExecutionResultNodeZipper> sameParent) {
-        Map<ExecutionResultNodePosition, ExecutionResultNode> newChildren = new LinkedHashMap<>();
-        List<Breadcrumb> restBreadcrumbs = Collections.emptyList();
-        for (ExecutionResultNodeZipper zipper : sameParent) {
-            restBreadcrumbs = zipper.getBreadcrumbList().subList(1, zipper.getBreadcrumbList().size());
-            newChildren.put(zipper.getBreadcrumbList().get(0).position, zipper.getCurNode());
+        private PathNode(ExecutionResultNode node) {
+            this.node = node;
         }
-        ExecutionResultNode newNode = parent.withNewChildren(newChildren);
-        return new ExecutionResultNodeZipper(newNode, restBreadcrumbs);
-    }
 
-    private Map<ExecutionResultNode, List<ExecutionResultNodeZipper>> zipperWithSameParent(List<ExecutionResultNodeZipper> zippers) {
-        return zippers.stream().collect(Collectors.groupingBy(ExecutionResultNodeZipper::getParent));
+        private PathNode child(ExecutionResultNodePosition position, ExecutionResultNode childNode) {
+            return children.computeIfAbsent(position, key -> new PathNode(childNode));
+        }
+
+        private ExecutionResultNode rebuild() {
+            ExecutionResultNode newNode = replacement != null ? replacement : node;
+            if (children.isEmpty()) {
+                return newNode;
+            }
+            Map<ExecutionResultNodePosition, ExecutionResultNode> newChildren = new LinkedHashMap<>();
+            children.forEach((position, child) -> newChildren.put(position, child.rebuild()));
+            return newNode.withNewChildren(newChildren);
+        }
     }
 
 }
@@ -13,11 +13,20 @@ import java.util.Optional;
 public class ObjectExecutionResultNode extends ExecutionResultNode {
 
     private Map<String, ExecutionResultNode> children;
+    // the number of children which are null although they are non nullable
+    private final int nonNullableChildCount;
 
     public ObjectExecutionResultNode(FetchedValueAnalysis fetchedValueAnalysis,
                                      Map<String, ExecutionResultNode> children) {
-        super(fetchedValueAnalysis, ResultNodesUtil.newNullableException(fetchedValueAnalysis, children.values()));
+        this(fetchedValueAnalysis, children, ResultNodesUtil.countNonNullableExceptions(children.values()));
+    }
+
+    private ObjectExecutionResultNode(FetchedValueAnalysis fetchedValueAnalysis,
+                                      Map<String, ExecutionResultNode> children,
+                                      int nonNullableChildCount) {
+        super(fetchedValueAnalysis, ResultNodesUtil.nonNullableExceptionToPropagate(fetchedValueAnalysis, children.values(), nonNullableChildCount));
         this.children = children;
+        this.nonNullableChildCount = nonNullableChildCount;
     }
 
     @Override
@@ -28,22 +37,41 @@ public class ObjectExecutionResultNode extends ExecutionResultNode {
     @Override
     public ExecutionResultNode withChild(ExecutionResultNode child, ExecutionResultNodePosition position) {
         LinkedHashMap<String, ExecutionResultNode> newChildren = new LinkedHashMap<>(this.children);
-        newChildren.put(position.getKey(), child);
-        return new graphql.result.ObjectExecutionResultNode(getFetchedValueAnalysis(), newChildren);
+        ExecutionResultNode oldChild = newChildren.put(position.getKey(), child);
+        int newNonNullableChildCount = nonNullableChildCount
+                - ResultNodesUtil.nonNullableExceptionCount(oldChild)
+                + ResultNodesUtil.nonNullableExceptionCount(child);
+        return new graphql.result.ObjectExecutionResultNode(getFetchedValueAnalysis(), newChildren, newNonNullableChildCount);
     }
 
     @Override
     public ExecutionResultNode withNewChildren(Map<ExecutionResultNodePosition, ExecutionResultNode> children) {
         LinkedHashMap<String, ExecutionResultNode> mergedChildren = new LinkedHashMap<>(this.children);
-        children.entrySet().stream().forEach(entry -> mergedChildren.put(entry.getKey().getKey(), entry.getValue()));
-        return new graphql.result.ObjectExecutionResultNode(getFetchedValueAnalysis(), mergedChildren);
+        int newNonNullableChildCount = nonNullableChildCount;
+        for (Map.Entry<ExecutionResultNodePosition, ExecutionResultNode> entry : children.entrySet()) {
+            ExecutionResultNode oldChild = mergedChildren.put(entry.getKey().getKey(), entry.getValue());
+            newNonNullableChildCount += ResultNodesUtil.nonNullableExceptionCount(entry.getValue()) - ResultNodesUtil.nonNullableExceptionCount(oldChild);
+        }
+        return new graphql.result.ObjectExecutionResultNode(getFetchedValueAnalysis(), mergedChildren, newNonNullableChildCount);
     }
 
     public Map<String, ExecutionResultNode> getChildrenMap() {
         return new LinkedHashMap<>(children);
     }
 
+    // not copied: only for reading the children inside this package
+    Map<String, ExecutionResultNode> childrenMapView() {
+        return children;
+    }
+
+    public boolean hasChildrenNonNullableException() {
+        return nonNullableChildCount > 0;
+    }
+
     public Optional<NonNullableFieldWasNullException> getChildrenNonNullableException() {
+        if (nonNullableChildCount == 0) {
+            return Optional.empty();
+        }
         return children.values().stream()
                 .filter(executionResultNode -> executionResultNode.getNonNullableFieldWasNullException() != null)
                 .map(ExecutionResultNode::getNonNullableFieldWasNullException)
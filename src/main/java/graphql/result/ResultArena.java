@@ -0,0 +1,90 @@
+package graphql.result;
+
+import graphql.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode;
+import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode;
+
+/**
+ * The result tree of one execution while it is built: the children of an unresolved object node are filled in place
+ * instead of replacing every node on the path to the root (like the zippers do). The immutable tree is created only
+ * once by {@link #freeze(RootExecutionResultNode)}.
+ *
+ * Not thread safe: it must only be changed by one thread at a time, e.g. after all fetches of a level completed.
+ */
+public class ResultArena {
+
+    private final Map<UnresolvedObjectResultNode, Map<String, ExecutionResultNode>> childrenByUnresolvedNode = new IdentityHashMap<>();
+
+    /**
+     * @param unresolvedNode the node to fill
+     * @param children       the children of the node: owned by the arena from now on
+     */
+    public void fill(UnresolvedObjectResultNode unresolvedNode, Map<String, ExecutionResultNode> children) {
+        Map<String, ExecutionResultNode> previous = childrenByUnresolvedNode.put(unresolvedNode, children);
+        Assert.assertTrue(previous == null, "node is already filled");
+    }
+
+    /**
+     * Adds the unresolved object nodes in the given nodes and the lists below them to the result.
+     *
+     * @param nodes  the nodes to search
+     * @param result the list to add the unresolved nodes to
+     */
+    public static void collectUnresolvedNodes(Collection<ExecutionResultNode> nodes, List<UnresolvedObjectResultNode> result) {
+        for (ExecutionResultNode node : nodes) {
+            if (node instanceof UnresolvedObjectResultNode) {
+                result.add((UnresolvedObjectResultNode) node);
+            } else if (node instanceof ListExecutionResultNode) {
+                collectUnresolvedNodes(node.getChildren(), result);
+            }
+        }
+    }
+
+    /**
+     * @param root the root node the arena was filled for
+     *
+     * @return the immutable tree with every filled node replaced by a resolved one
+     */
+    public RootExecutionResultNode freeze(RootExecutionResultNode root) {
+        Map<String, ExecutionResultNode> children = new LinkedHashMap<>(root.childrenMapView());
+        children.replaceAll((key, child) -> freeze(child));
+        return new RootExecutionResultNode(children);
+    }
+
+    /**
+     * @param node a node below a root or the root of a partial tree, e.g. an object resolved for a deferred fragment
+     *
+     * @return the immutable node with every filled node replaced by a resolved one
+     */
+    public ExecutionResultNode freeze(ExecutionResultNode node) {
+        if (node instanceof UnresolvedObjectResultNode) {
+            Map<String, ExecutionResultNode> children = childrenByUnresolvedNode.get(node);
+            if (children == null) {
+                return node;
+            }
+            // the children map is owned by the arena, so it can become the map of the resolved node
+            children.replaceAll((key, child) -> freeze(child));
+            return ((UnresolvedObjectResultNode) node).withChildren(children);
+        }
+        if (node instanceof ListExecutionResultNode) {
+            List<ExecutionResultNode> children = node.getChildren();
+            List<ExecutionResultNode> frozenChildren = new ArrayList<>(children.size());
+            boolean changed = false;
+            for (ExecutionResultNode child : children) {
+                ExecutionResultNode frozenChild = freeze(child);
+                changed |= frozenChild != child;
+                frozenChildren.add(frozenChild);
+            }
+            return changed ? new ListExecutionResultNode(node.getFetchedValueAnalysis(), frozenChildren) : node;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,133 @@
+package graphql.result;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import graphql.FetchedValueAnalysis;
+import graphql.GraphQLError;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a result tree as JSON without converting it into maps and lists first (like {@link ResultNodesUtil#toData}
+ * does): objects and lists which are null because of a non nullable child are written as null while walking the tree.
+ */
+public class ResultNodesJsonWriter {
+
+    // only used for error maps and unusual leaf values: must not flush after every value
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    /**
+     * Writes {@code {"errors": [..], "data": {..}}} to the output stream: the stream is flushed, but not closed.
+     *
+     * @param root         the resolved root node or null if the execution didn't start (then only the errors are written)
+     * @param errors       the errors: only written if there are any
+     * @param outputStream the stream to write to
+     *
+     * @throws IOException if writing fails
+     */
+    public static void write(ExecutionResultNode root, List<GraphQLError> errors, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try {
+            write(root, errors, generator);
+        } finally {
+            generator.close();
+        }
+    }
+
+    public static void write(ExecutionResultNode root, List<GraphQLError> errors, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        if (!errors.isEmpty()) {
+            writeErrors(errors, generator);
+        }
+        if (root != null) {
+            generator.writeFieldName("data");
+            writeData(root, generator);
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    public static void writeErrors(List<GraphQLError> errors, JsonGenerator generator) throws IOException {
+        generator.writeArrayFieldStart("errors");
+        for (GraphQLError error : errors) {
+            // the specification map only contains json types
+            OBJECT_MAPPER.writeValue(generator, error.toSpecification());
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes the same json as {@link ResultNodesUtil#toData} would produce for this node.
+     *
+     * @param node      the node to write
+     * @param generator the generator to write to
+     *
+     * @throws IOException if writing fails
+     */
+    public static void writeData(ExecutionResultNode node, JsonGenerator generator) throws IOException {
+        if (node instanceof LeafExecutionResultNode) {
+            if (node.getFetchedValueAnalysis().isNullValue()) {
+                generator.writeNull();
+            } else {
+                writeLeafValue(((LeafExecutionResultNode) node).getValue(), generator);
+            }
+            return;
+        }
+        if (node instanceof ListExecutionResultNode) {
+            ListExecutionResultNode listNode = (ListExecutionResultNode) node;
+            if (listNode.hasChildNonNullableException()) {
+                generator.writeNull();
+                return;
+            }
+            List<ExecutionResultNode> children = listNode.getChildren();
+            generator.writeStartArray(children.size());
+            for (ExecutionResultNode child : children) {
+                writeData(child, generator);
+            }
+            generator.writeEndArray();
+            return;
+        }
+        if (node instanceof ObjectExecutionResultNode.UnresolvedObjectResultNode) {
+            FetchedValueAnalysis fetchedValueAnalysis = node.getFetchedValueAnalysis();
+            generator.writeString("Not resolved : " + fetchedValueAnalysis.getExecutionStepInfo().getPath() + " with subSelection " + fetchedValueAnalysis.getFieldSubSelection().toShortString());
+            return;
+        }
+        if (node instanceof ObjectExecutionResultNode) {
+            ObjectExecutionResultNode objectNode = (ObjectExecutionResultNode) node;
+            if (objectNode.hasChildrenNonNullableException()) {
+                generator.writeNull();
+                return;
+            }
+            generator.writeStartObject();
+            for (Map.Entry<String, ExecutionResultNode> child : objectNode.childrenMapView().entrySet()) {
+                generator.writeFieldName(child.getKey());
+                writeData(child.getValue(), generator);
+            }
+            generator.writeEndObject();
+            return;
+        }
+        throw new RuntimeException("Unexpected node " + node);
+    }
+
+    private static void writeLeafValue(Object value, JsonGenerator generator) throws IOException {
+        if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber((Integer) value);
+        } else if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Double) {
+            generator.writeNumber((Double) value);
+        } else {
+            // other numbers and whatever a custom scalar serializes to
+            OBJECT_MAPPER.writeValue(generator, value);
+        }
+    }
+}
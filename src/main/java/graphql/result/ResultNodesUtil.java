@@ -4,10 +4,8 @@ import graphql.Assert;
 import graphql.FetchedValueAnalysis;
 import graphql.execution.NonNullableFieldWasNullException;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,7 +23,7 @@ public class ResultNodesUtil {
             return root.getFetchedValueAnalysis().isNullValue() ? null : ((LeafExecutionResultNode) root).getValue();
         }
         if (root instanceof ListExecutionResultNode) {
-            if (((ListExecutionResultNode) root).getChildNonNullableException().isPresent()) {
+            if (((ListExecutionResultNode) root).hasChildNonNullableException()) {
                 return null;
             }
             return root.getChildren().stream().map(ResultNodesUtil::toData).collect(Collectors.toList());
@@ -36,7 +34,7 @@ public class ResultNodesUtil {
             return "Not resolved : " + fetchedValueAnalysis.getExecutionStepInfo().getPath() + " with subSelection " + fetchedValueAnalysis.getFieldSubSelection().toShortString();
         }
         if (root instanceof ObjectExecutionResultNode) {
-            if (((ObjectExecutionResultNode) root).getChildrenNonNullableException().isPresent()) {
+            if (((ObjectExecutionResultNode) root).hasChildrenNonNullableException()) {
                 return null;
             }
             Map<String, Object> result = new LinkedHashMap<>();
@@ -54,20 +52,40 @@ public class ResultNodesUtil {
                 .findFirst();
     }
 
-    public static NonNullableFieldWasNullException newNullableException(FetchedValueAnalysis fetchedValueAnalysis, Collection<ExecutionResultNode> children) {
+    public static int countNonNullableExceptions(Collection<ExecutionResultNode> children) {
+        Assert.assertNotNull(children);
+        int count = 0;
+        for (ExecutionResultNode child : children) {
+            count += nonNullableExceptionCount(child);
+        }
+        return count;
+    }
+
+    static int nonNullableExceptionCount(ExecutionResultNode node) {
+        return node != null && node.getNonNullableFieldWasNullException() != null ? 1 : 0;
+    }
+
+    /**
+     * The exception of a non nullable child is propagated to a non nullable parent as it is: wrapping it into a new
+     * exception for every level would fill in a stack trace per level.
+     *
+     * @param fetchedValueAnalysis  the analysis of the parent (null for the root node)
+     * @param children              the children of the parent
+     * @param nonNullableChildCount the number of children with an exception
+     *
+     * @return the exception of the parent or null
+     */
+    public static NonNullableFieldWasNullException nonNullableExceptionToPropagate(FetchedValueAnalysis fetchedValueAnalysis,
+                                                                                   Collection<ExecutionResultNode> children,
+                                                                                   int nonNullableChildCount) {
         // can only happen for the root node
-        if (fetchedValueAnalysis == null) {
+        if (fetchedValueAnalysis == null || nonNullableChildCount == 0) {
             return null;
         }
-        Assert.assertNotNull(children);
-        boolean listIsNonNull = fetchedValueAnalysis.getExecutionStepInfo().isNonNullType();
-        if (listIsNonNull) {
-            Optional<NonNullableFieldWasNullException> firstNonNullableException = getFirstNonNullableException(children);
-            if (firstNonNullableException.isPresent()) {
-                return new NonNullableFieldWasNullException(firstNonNullableException.get());
-            }
+        if (!fetchedValueAnalysis.getExecutionStepInfo().isNonNullType()) {
+            return null;
         }
-        return null;
+        return getFirstNonNullableException(children).orElse(null);
     }
 
     public static List<ExecutionResultNodeZipper> getUnresolvedNodes(Collection<ExecutionResultNode> roots) {
@@ -75,9 +93,9 @@ public class ResultNodesUtil {
 
         ResultNodeTraverser resultNodeTraverser = new ResultNodeTraverser(new ResultNodeVisitor() {
             @Override
-            public void visit(ExecutionResultNode node, List<Breadcrumb> breadcrumbs) {
+            public void visit(ExecutionResultNode node, Breadcrumb breadcrumb) {
                 if (node instanceof UnresolvedObjectResultNode) {
-                    result.add(new ExecutionResultNodeZipper(node, breadcrumbs));
+                    result.add(new ExecutionResultNodeZipper(node, breadcrumb));
                 }
             }
         });
@@ -90,9 +108,9 @@ public class ResultNodesUtil {
 
         ResultNodeTraverser resultNodeTraverser = new ResultNodeTraverser(new ResultNodeVisitor() {
             @Override
-            public void visit(ExecutionResultNode node, List<Breadcrumb> breadcrumbs) {
+            public void visit(ExecutionResultNode node, Breadcrumb breadcrumb) {
                 if (node instanceof UnresolvedObjectResultNode) {
-                    zippers.add(new ExecutionResultNodeZipper(node, breadcrumbs));
+                    zippers.add(new ExecutionResultNodeZipper(node, breadcrumb));
                 }
             }
         });
@@ -103,37 +121,41 @@ public class ResultNodesUtil {
 
     public interface ResultNodeVisitor {
 
-        void visit(ExecutionResultNode node, List<Breadcrumb> breadcrumbs);
+        /**
+         * @param node       the visited node
+         * @param breadcrumb the breadcrumb of the node (null for the root): it is shared with the siblings of the node
+         */
+        void visit(ExecutionResultNode node, Breadcrumb breadcrumb);
 
     }
 
     private static class ResultNodeTraverser {
 
         ResultNodeVisitor visitor;
-        Deque<Breadcrumb> breadCrumbsStack = new ArrayDeque<>();
+        // the breadcrumbs of the current node: the chain is shared by all nodes below the same parent
+        Breadcrumb curBreadcrumb;
 
         public ResultNodeTraverser(ResultNodeVisitor visitor) {
             this.visitor = visitor;
         }
 
         public void traverse(ExecutionResultNode node) {
+            Breadcrumb breadcrumb = curBreadcrumb;
             if (node instanceof ObjectExecutionResultNode) {
                 ((ObjectExecutionResultNode) node).getChildrenMap().forEach((name, child) -> {
-                    breadCrumbsStack.push(new Breadcrumb(node, key(name)));
+                    curBreadcrumb = new Breadcrumb(node, key(name), breadcrumb);
                     traverse(child);
-                    breadCrumbsStack.pop();
                 });
             }
             if (node instanceof ListExecutionResultNode) {
                 List<ExecutionResultNode> children = node.getChildren();
                 for (int i = 0; i < children.size(); i++) {
-                    breadCrumbsStack.push(new Breadcrumb(node, index(i)));
+                    curBreadcrumb = new Breadcrumb(node, index(i), breadcrumb);
                     traverse(children.get(i));
-                    breadCrumbsStack.pop();
                 }
             }
-            List<Breadcrumb> breadcrumbs = new ArrayList<>(breadCrumbsStack);
-            visitor.visit(node, breadcrumbs);
+            curBreadcrumb = breadcrumb;
+            visitor.visit(node, breadcrumb);
         }
 
     }
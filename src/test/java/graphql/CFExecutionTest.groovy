@@ -1,9 +1,25 @@
 package graphql
 
+import com.fasterxml.jackson.databind.ObjectMapper
+import graphql.execution.ExecutionContext
 import graphql.execution.ExecutionId
+import graphql.execution.ExecutionStepInfo
+import graphql.language.Field
 import graphql.schema.DataFetcher
+import org.dataloader.BatchLoader
+import org.dataloader.DataLoader
+import org.dataloader.DataLoaderRegistry
+import reactor.core.publisher.Flux
 import spock.lang.Specification
 
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+import java.util.function.UnaryOperator
+import java.util.stream.Stream
+
 class CFExecutionTest extends Specification {
 
 
@@ -462,4 +478,1613 @@ class CFExecutionTest extends Specification {
 
     }
 
+    def "batched data fetcher gets all sources of a batch"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId3"]]
+        def batchSizes = []
+        def barFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                batchSizes << environment.size()
+                return environment.getSources().collect { source -> [id: source.id + "-bar"] }
+            }
+        }
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: barFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }    
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+            }
+        }}
+        """)
+
+        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+                .build()
+
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def monoResult = execution.execute(document, schema, ExecutionId.generate(), executionInput)
+        def result = monoResult.get()
+
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", bar: [id: "fooId1-bar"]],
+                                   [id: "fooId2", bar: [id: "fooId2-bar"]],
+                                   [id: "fooId3", bar: [id: "fooId3-bar"]]]]
+        batchSizes == [3]
+
+    }
+
+    def "keyed batched data fetcher result"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId1"]]
+        def barFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                def barsById = [fooId1: [id: "bar1"], fooId2: [id: "bar2"]]
+                return CompletableFuture.completedFuture(BatchedDataFetcherResult.keyed(barsById, { source -> source.id }))
+            }
+        }
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: barFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }    
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            bar {
+                id
+            }
+        }}
+        """)
+
+        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+                .build()
+
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def monoResult = execution.execute(document, schema, ExecutionId.generate(), executionInput)
+        def result = monoResult.get()
+
+
+        then:
+        result.getData() == [foo: [[bar: [id: "bar1"]], [bar: [id: "bar2"]], [bar: [id: "bar1"]]]]
+
+    }
+
+    def "batched data fetcher returning null fetches null for every source"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def barFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                return null
+            }
+        }
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: barFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+            }
+        }}
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", bar: null], [id: "fooId2", bar: null]]]
+    }
+
+    def "prepared operation is reused for repeated executions"() {
+        def fooData = [[id: "fooId1", name: "someFoo1"], [id: "fooId2", name: "someFoo2"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        query withName(\$withName: Boolean!) {foo {
+            id
+            name @include(if: \$withName)
+        }}
+        """)
+
+        def cache = new PreparedOperationCache(10)
+        CFExecution execution = CFExecution.newCFExecution().preparedOperationCache(cache).build()
+
+        when:
+        def withName = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().variables([withName: true]).build()).get()
+        def withoutName = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().variables([withName: false]).build()).get()
+
+        then:
+        withName.getData() == [foo: fooData]
+        withoutName.getData() == [foo: [[id: "fooId1"], [id: "fooId2"]]]
+        cache.size() == 1
+    }
+
+    def "root fields and batch keys of a document without directives are shared by its executions"() {
+        def fooData = [[id: "fooId1", name: "someFoo1"], [id: "fooId2", name: "someFoo2"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            name
+        }}
+        """)
+
+        def cache = new PreparedOperationCache(10)
+        CFExecution execution = CFExecution.newCFExecution().preparedOperationCache(cache).build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+        def preparedOperation = cache.get(schema, document, null)
+        def second = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+        def fooType = schema.getObjectType("Foo")
+        def fooFields = preparedOperation.getRootFields([:]).foo
+        def collected = new AtomicInteger()
+        def firstBatchKey = preparedOperation.getBatchKeys().getBatchKey(fooType, fooFields, { collected.incrementAndGet(); [:] })
+        def secondBatchKey = preparedOperation.getBatchKeys().getBatchKey(fooType, fooFields, { collected.incrementAndGet(); [:] })
+
+        then:
+        first.getData() == [foo: fooData]
+        second.getData() == [foo: fooData]
+        cache.size() == 1
+        cache.get(schema, document, null).is(preparedOperation)
+        preparedOperation.getRootFields([:]).is(preparedOperation.getRootFields([withName: true]))
+        preparedOperation.getBatchKeys().is(preparedOperation.getBatchKeys())
+        // collected by the executions already
+        collected.get() == 0
+        firstBatchKey.is(secondBatchKey)
+        firstBatchKey.getFields().keySet() as List == ["id", "name"]
+    }
+
+    def "operations of the same document are prepared separately"() {
+        def fooData = [[id: "fooId1", name: "someFoo1"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        query ids {foo { id }}
+        query names {foo { name }}
+        """)
+
+        def cache = new PreparedOperationCache(10)
+        CFExecution execution = CFExecution.newCFExecution().preparedOperationCache(cache).build()
+
+        when:
+        def ids = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().operationName("ids").build()).get()
+        def names = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().operationName("names").build()).get()
+
+        then:
+        ids.getData() == [foo: [[id: "fooId1"]]]
+        names.getData() == [foo: [[name: "someFoo1"]]]
+        cache.size() == 2
+        !cache.get(schema, document, "ids").is(cache.get(schema, document, "names"))
+        cache.get(schema, document, "ids").getOperationDefinition().getName() == "ids"
+    }
+
+    def "arguments are shared by all sources of a batch"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def arguments = []
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: { env -> arguments << env.getArguments(); env.getArgument("prefix") + env.getSource().id } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name(prefix: String): String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        query withPrefix(\$prefix: String) {foo {
+            id
+            name(prefix: \$prefix)
+        }}
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().variables([prefix: "name-"]).build()).get()
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", name: "name-fooId1"], [id: "fooId2", name: "name-fooId2"]]]
+        arguments == [[prefix: "name-"], [prefix: "name-"]]
+    }
+
+    def "fetch instrumentation gets operation, levels and batches"() {
+        def fooData = [[id: "fooId1", bar: [id: "barId1"]], [id: "fooId2", bar: [id: "barId2"]]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+            }
+        }}
+        """)
+
+        def events = Collections.synchronizedList([])
+        def instrumentation = new FetchInstrumentation() {
+            @Override
+            FetchInstrumentationContext beginOperation(ExecutionContext executionContext) {
+                return recordEnd(events, "operation")
+            }
+
+            @Override
+            FetchInstrumentationContext beginLevel(ExecutionContext executionContext, int level, int nodeCount) {
+                return recordEnd(events, "level " + level + ": " + nodeCount)
+            }
+
+            @Override
+            FetchInstrumentationContext beginBatch(ExecutionContext executionContext, List<Field> sameFields, List<ExecutionStepInfo> executionStepInfos) {
+                return recordEnd(events, "batch " + sameFields[0].getName() + ": " + executionStepInfos.size())
+            }
+        }
+        CFExecution execution = CFExecution.newCFExecution().fetchInstrumentation(instrumentation).build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: fooData]
+        events == ["level 1: 1", "batch id: 2", "batch bar: 2", "level 2: 2", "batch id: 2", "level 3: 2", "operation"]
+    }
+
+
+    def "a failing fetch instrumentation doesn't change the result"() {
+        def fooData = [[id: "fooId1", bar: [id: "barId1"]], [id: "fooId2", bar: [id: "barId2"]]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+            }
+        }}
+        """)
+
+        def failingContext = new FetchInstrumentationContext() {
+            @Override
+            void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception) {
+                throw new RuntimeException("instrumentation failed")
+            }
+        }
+        def instrumentation = new FetchInstrumentation() {
+            @Override
+            FetchInstrumentationContext beginOperation(ExecutionContext executionContext) {
+                return failingContext
+            }
+
+            @Override
+            FetchInstrumentationContext beginLevel(ExecutionContext executionContext, int level, int nodeCount) {
+                return failingContext
+            }
+
+            @Override
+            FetchInstrumentationContext beginField(ExecutionContext executionContext, ExecutionStepInfo executionStepInfo) {
+                return failingContext
+            }
+        }
+        CFExecution execution = CFExecution.newCFExecution().fetchInstrumentation(instrumentation).build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: fooData]
+    }
+
+
+    def "executeAndWrite writes the result as json with null bubbling"() {
+        def fooData = [[id: "fooId1", bar: [[id: "barId1", name: "someBar1"], null]],
+                       [id: "fooId2", bar: [[id: "barId3", name: "someBar3"], [id: "barId4", name: "someBar4"]]]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: [Bar!]!
+        }
+        type Bar {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+                name
+            }
+        }}
+        """)
+
+        def outputStream = new ByteArrayOutputStream()
+        CFExecution execution = new CFExecution()
+
+        when:
+        execution.executeAndWrite(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build(), outputStream).get()
+
+        then:
+        new ObjectMapper().readValue(outputStream.toByteArray(), Map) == [data: [foo: [null,
+                                                                                      [id: "fooId2", bar: [[id: "barId3", name: "someBar3"], [id: "barId4", name: "someBar4"]]]]]]
+    }
+
+
+    def "pipelined execution resolves a subtree without waiting for a slow sibling"() {
+        def slowResult = new CompletableFuture()
+        def fetched = []
+        def dataFetchers = [
+                Query: [a: { env -> [:] } as DataFetcher,
+                        b: { env -> [bar: [baz: [:]]] } as DataFetcher],
+                A    : [slow: { env -> slowResult } as DataFetcher],
+                Baz  : [name: { env -> fetched << "baz"; "baz" } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            a: A
+            b: B
+        }
+        type A {
+            slow: Slow
+        }
+        type Slow {
+            name: String
+        }
+        type B {
+            bar: Bar
+        }
+        type Bar {
+            baz: Baz
+        }
+        type Baz {
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {
+            a { slow { name } }
+            b { bar { baz { name } } }
+        }
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution().dispatchWindow(DispatchWindow.immediate()).build()
+
+        when:
+        def resultFuture = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+
+        then:
+        fetched == ["baz"]
+        !resultFuture.isDone()
+
+        when:
+        slowResult.complete([name: "slow"])
+
+        then:
+        resultFuture.get().getData() == [a: [slow: [name: "slow"]], b: [bar: [baz: [name: "baz"]]]]
+    }
+
+
+    def "batches dispatched after the max wait are not fetched on the scheduler thread"() {
+        def fooData = [[id: "fooId1", bar: [id: "barId1"]], [id: "fooId2", bar: [id: "barId2"]]]
+        def threads = Collections.synchronizedList([])
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Bar  : [name: { env -> threads << Thread.currentThread().getName(); "name-" + env.getSource().id } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                name
+            }
+        }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution().dispatchWindow(DispatchWindow.of(Duration.ofMillis(5), 100)).build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", bar: [name: "name-barId1"]], [id: "fooId2", bar: [name: "name-barId2"]]]]
+        threads.size() == 2
+        threads.every { !it.startsWith("graphql-fetch-scheduler") }
+    }
+
+    def "data loaders are dispatched per level including chained loads"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def loadedKeys = []
+        def barLoader = new DataLoader({ keys ->
+            loadedKeys << keys
+            CompletableFuture.completedFuture(keys.collect { "bar-" + it })
+        } as BatchLoader)
+        def nameLoader = new DataLoader({ keys ->
+            loadedKeys << keys
+            CompletableFuture.completedFuture(keys.collect { "name-" + it })
+        } as BatchLoader)
+        def dataLoaderRegistry = new DataLoaderRegistry()
+                .register("bar", barLoader)
+                .register("name", nameLoader)
+
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [barName: { env -> barLoader.load(env.getSource().id).thenCompose { bar -> nameLoader.load(bar) } } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            barName: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            barName
+        }}
+        """)
+
+        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+                .dataLoaderRegistry(dataLoaderRegistry)
+                .build()
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), executionInput).get()
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", barName: "name-bar-fooId1"], [id: "fooId2", barName: "name-bar-fooId2"]]]
+        loadedKeys == [["fooId1", "fooId2"], ["bar-fooId1", "bar-fooId2"]]
+    }
+
+    def "data loaders are dispatched after the data fetchers ran on the fetch executor"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def loadedKeys = Collections.synchronizedList([])
+        def barLoader = new DataLoader({ keys ->
+            loadedKeys << keys
+            CompletableFuture.completedFuture(keys.collect { "bar-" + it })
+        } as BatchLoader)
+        def dataLoaderRegistry = new DataLoaderRegistry()
+                .register("bar", barLoader)
+
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: { env ->
+                    // the loads are queued well after the level issued the fetches
+                    Thread.sleep(50)
+                    barLoader.load(env.getSource().id)
+                } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar
+        }}
+        """)
+
+        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+                .dataLoaderRegistry(dataLoaderRegistry)
+                .build()
+
+        def fetchExecutor = new BoundedFetchExecutor("fetch", 2, 10)
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchExecutor(fetchExecutor)
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), executionInput).get(5, TimeUnit.SECONDS)
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", bar: "bar-fooId1"], [id: "fooId2", bar: "bar-fooId2"]]]
+        loadedKeys == [["fooId1", "fooId2"]]
+
+        cleanup:
+        fetchExecutor.shutdown()
+    }
+
+    def "blocking data fetcher runs on the blocking fetch executor"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def threadNames = Collections.synchronizedList([])
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: BlockingDataFetcher.blocking({ env ->
+                    threadNames << Thread.currentThread().getName()
+                    "name-" + env.getSource().id
+                } as DataFetcher)]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            name
+        }}
+        """)
+
+        def blockingFetchExecutor = new BoundedFetchExecutor("blocking-fetch", 2, 10)
+        CFExecution execution = CFExecution.newCFExecution()
+                .blockingFetchExecutor(blockingFetchExecutor)
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", name: "name-fooId1"], [id: "fooId2", name: "name-fooId2"]]]
+        threadNames.size() == 2
+        threadNames.every { it.startsWith("blocking-fetch-") }
+        blockingFetchExecutor.getRejectedCount() == 0
+
+        cleanup:
+        blockingFetchExecutor.shutdown()
+    }
+
+    def "blocking and idempotent batched data fetchers are still batched"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId3"]]
+        def batchSizes = Collections.synchronizedList([])
+        def threadNames = Collections.synchronizedList([])
+        def batchedFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                batchSizes << environment.size()
+                threadNames << Thread.currentThread().getName()
+                return environment.getSources().collect { source -> "name-" + source.id }
+            }
+        }
+        def blockingFetcher = BlockingDataFetcher.blocking(batchedFetcher)
+        def idempotentFetcher = IdempotentDataFetcher.idempotent(batchedFetcher)
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: blockingFetcher, title: idempotentFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+            title: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            name
+            title
+        }}
+        """)
+
+        def blockingFetchExecutor = new BoundedFetchExecutor("blocking-fetch", 2, 10)
+        CFExecution execution = CFExecution.newCFExecution()
+                .blockingFetchExecutor(blockingFetchExecutor)
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        blockingFetcher instanceof BatchedDataFetcher
+        blockingFetcher instanceof BlockingDataFetcher
+        idempotentFetcher instanceof BatchedDataFetcher
+        idempotentFetcher instanceof IdempotentDataFetcher
+        result.getData() == [foo: [[name: "name-fooId1", title: "name-fooId1"],
+                                   [name: "name-fooId2", title: "name-fooId2"],
+                                   [name: "name-fooId3", title: "name-fooId3"]]]
+        batchSizes == [3, 3]
+        threadNames.count { it.startsWith("blocking-fetch-") } == 1
+
+        cleanup:
+        blockingFetchExecutor.shutdown()
+    }
+
+    def "a data fetcher marked blocking and idempotent is offloaded and hedged"() {
+        def calls = new AtomicInteger()
+        def threadNames = Collections.synchronizedList([])
+        def fooFetcher = IdempotentDataFetcher.idempotent(BlockingDataFetcher.blocking({ env ->
+            def call = calls.incrementAndGet()
+            threadNames << Thread.currentThread().getName()
+            // the first fetch is fast, the second hangs and is answered by its hedge
+            call == 2 ? new CompletableFuture() : CompletableFuture.completedFuture("foo" + call)
+        } as DataFetcher))
+        def otherOrder = BlockingDataFetcher.blocking(IdempotentDataFetcher.idempotent({ env -> "bar" } as DataFetcher))
+        def dataFetchers = [
+                Query: [foo: fooFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("{foo}")
+
+        def blockingFetchExecutor = new BoundedFetchExecutor("blocking-fetch", 2, 10)
+        def hedgePolicy = HedgePolicy.newHedgePolicy()
+                .minSamples(1)
+                .minDelay(Duration.ofMillis(10))
+                .build()
+        CFExecution execution = CFExecution.newCFExecution()
+                .blockingFetchExecutor(blockingFetchExecutor)
+                .hedgePolicy(hedgePolicy)
+                .build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+        def second = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        fooFetcher instanceof BlockingDataFetcher
+        otherOrder instanceof BlockingDataFetcher
+        otherOrder instanceof IdempotentDataFetcher
+        first.getData() == [foo: "foo1"]
+        second.getData() == [foo: "foo3"]
+        calls.get() == 3
+        threadNames.every { it.startsWith("blocking-fetch-") }
+
+        cleanup:
+        blockingFetchExecutor.shutdown()
+    }
+
+    def "a hung fetch completes with an error after the field timeout"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: { env -> new CompletableFuture() } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            name
+        }}
+        """)
+
+        def fieldErrors = Collections.synchronizedList([])
+        def fetchInstrumentation = new FetchInstrumentation() {
+            @Override
+            FetchInstrumentationContext beginField(ExecutionContext executionContext, ExecutionStepInfo executionStepInfo) {
+                new FetchInstrumentationContext() {
+                    @Override
+                    void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception) {
+                        fieldErrors.addAll(errors)
+                    }
+                }
+            }
+        }
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchInstrumentation(fetchInstrumentation)
+                .fetchTimeouts(FetchTimeouts.newFetchTimeouts().timeout("Foo", "name", Duration.ofMillis(50)).build())
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", name: null], [id: "fooId2", name: null]]]
+        fieldErrors.size() == 2
+        fieldErrors.every { it instanceof ExceptionWhileDataFetching && it.getMessage().contains("timed out after 50 ms") }
+    }
+
+    def "fetches which timed out are not continued on the scheduler thread"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: { env -> new CompletableFuture() } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            name
+        }}
+        """)
+
+        def threads = Collections.synchronizedList([])
+        def fetchInstrumentation = new FetchInstrumentation() {
+            @Override
+            FetchInstrumentationContext beginField(ExecutionContext executionContext, ExecutionStepInfo executionStepInfo) {
+                new FetchInstrumentationContext() {
+                    @Override
+                    void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception) {
+                        if (!errors.isEmpty()) {
+                            threads << Thread.currentThread().getName()
+                        }
+                    }
+                }
+            }
+        }
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchInstrumentation(fetchInstrumentation)
+                .fetchTimeouts(FetchTimeouts.newFetchTimeouts().timeout("Foo", "name", Duration.ofMillis(50)).build())
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", name: null], [id: "fooId2", name: null]]]
+        threads.size() == 2
+        threads.every { !it.startsWith("graphql-fetch-scheduler") }
+    }
+
+    def "a slow fetch of an idempotent fetcher is hedged"() {
+        def calls = new AtomicInteger()
+        def dataFetchers = [
+                Query: [foo: IdempotentDataFetcher.idempotent({ env ->
+                    def call = calls.incrementAndGet()
+                    // the first fetch is fast, the second hangs and is answered by its hedge
+                    call == 2 ? new CompletableFuture() : CompletableFuture.completedFuture("foo" + call)
+                } as DataFetcher)]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("{foo}")
+
+        def hedgePolicy = HedgePolicy.newHedgePolicy()
+                .minSamples(1)
+                .minDelay(Duration.ofMillis(10))
+                .build()
+        CFExecution execution = CFExecution.newCFExecution()
+                .hedgePolicy(hedgePolicy)
+                .build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+        def second = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        first.getData() == [foo: "foo1"]
+        second.getData() == [foo: "foo3"]
+        calls.get() == 3
+    }
+
+    def "the hedge of a data loader fetch runs off the scheduler and is dispatched"() {
+        def calls = new AtomicInteger()
+        def threads = Collections.synchronizedList([])
+        def fooLoader = new DataLoader({ keys ->
+            CompletableFuture.completedFuture(keys.collect { "foo-" + it })
+        } as BatchLoader)
+        def dataFetchers = [
+                Query: [foo: IdempotentDataFetcher.idempotent({ env ->
+                    def call = calls.incrementAndGet()
+                    threads << Thread.currentThread().getName()
+                    // the first fetch is fast, the second hangs and is answered by its hedge
+                    call == 2 ? new CompletableFuture() : fooLoader.load("key" + call)
+                } as DataFetcher)]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("{foo}")
+
+        def hedgePolicy = HedgePolicy.newHedgePolicy()
+                .minSamples(1)
+                .minDelay(Duration.ofMillis(10))
+                .build()
+        CFExecution execution = CFExecution.newCFExecution()
+                .hedgePolicy(hedgePolicy)
+                .build()
+        def executionInput = ExecutionInput.newExecutionInput()
+                .dataLoaderRegistry(new DataLoaderRegistry().register("foo", fooLoader))
+                .build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), executionInput).get(5, TimeUnit.SECONDS)
+        def second = execution.execute(document, schema, ExecutionId.generate(), executionInput).get(5, TimeUnit.SECONDS)
+
+        then:
+        first.getData() == [foo: "foo-key1"]
+        second.getData() == [foo: "foo-key3"]
+        calls.get() == 3
+        !threads[2].startsWith("graphql-fetch-scheduler")
+    }
+
+    def "memoized fetches are shared by aliases"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"]]
+        def nameCalls = new AtomicInteger()
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [name: { env -> nameCalls.incrementAndGet(); env.getArgument("prefix") + env.getSource().id } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name(prefix: String): String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            a: name(prefix: "a-")
+            b: name(prefix: "a-")
+            c: name(prefix: "c-")
+        }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchMemoization(FetchMemoization.bySourceIdentity())
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: [[a: "a-fooId1", b: "a-fooId1", c: "c-fooId1"], [a: "a-fooId2", b: "a-fooId2", c: "c-fooId2"]]]
+        nameCalls.get() == 4
+    }
+
+    def "memoized batches only contain the distinct entities"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId1"]]
+        def batchSources = []
+        def barFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                batchSources << environment.getSources().collect { it.id }
+                return environment.getSources().collect { source -> [id: source.id + "-bar"] }
+            }
+        }
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: barFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            bar {
+                id
+            }
+        }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchMemoization(FetchMemoization.byEntityKey({ source -> source.id }))
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [foo: [[bar: [id: "fooId1-bar"]], [bar: [id: "fooId2-bar"]], [bar: [id: "fooId1-bar"]]]]
+        batchSources == [["fooId1", "fooId2"]]
+    }
+
+    def "cached fields are served across executions"() {
+        def configCalls = new AtomicInteger()
+        def dataFetchers = [
+                Query: [config: { env -> "config" + configCalls.incrementAndGet() } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            config: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("{config}")
+
+        def fieldCache = InMemoryFieldCache.newInMemoryFieldCache()
+                .field("Query", "config", Duration.ofMinutes(1))
+                .build()
+        CFExecution execution = CFExecution.newCFExecution()
+                .fieldCache(fieldCache)
+                .build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+        def second = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        first.getData() == [config: "config1"]
+        second.getData() == [config: "config1"]
+        configCalls.get() == 1
+        fieldCache.getHitCount() == 1
+    }
+
+    def "memoized and cached lazy lists are shared with all their elements"() {
+        def tagCalls = new AtomicInteger()
+        def configCalls = new AtomicInteger()
+        def dataFetchers = [
+                Query: [
+                        tags  : { env -> tagCalls.incrementAndGet(); ["t1", "t2", "t3"].iterator() } as DataFetcher,
+                        config: { env -> configCalls.incrementAndGet(); ["c1", "c2"].stream() } as DataFetcher
+                ]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            tags: [String]
+            config: [String]
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {
+            a: tags
+            b: tags
+            config
+        }
+        """)
+
+        def fieldCache = InMemoryFieldCache.newInMemoryFieldCache()
+                .field("Query", "config", Duration.ofMinutes(1))
+                .build()
+        CFExecution execution = CFExecution.newCFExecution()
+                .fetchMemoization(FetchMemoization.bySourceIdentity())
+                .fieldCache(fieldCache)
+                .listChunkSize(2)
+                .build()
+
+        when:
+        def first = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+        def second = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        first.getData() == [a: ["t1", "t2", "t3"], b: ["t1", "t2", "t3"], config: ["c1", "c2"]]
+        second.getData() == first.getData()
+        tagCalls.get() == 2
+        configCalls.get() == 1
+    }
+
+    FetchInstrumentationContext recordEnd(List events, String event) {
+        new FetchInstrumentationContext() {
+            @Override
+            void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception) {
+                events << event
+            }
+        }
+    }
+
+    def "deferred fragments are delivered as patches after the initial payload"() {
+        def fooData = [[id: "fooId1", name: "foo1", bar: [id: "barId1", name: "bar1"]],
+                       [id: "fooId2", name: "foo2", bar: [id: "barId2", name: "bar2"]]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            name: String
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            ... @defer(label: "details") {
+                name
+                bar {
+                    id
+                    ... BarName @defer
+                }
+            }
+        }}
+        fragment BarName on Bar { name }
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def payloads = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block()
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        payloads.size() == 5
+        payloads[0] == [data: [foo: [[id: "fooId1"], [id: "fooId2"]]], hasNext: true]
+        payloads[1..2] as Set == [
+                [data: [name: "foo1", bar: [id: "barId1"]], path: ["foo", 0], label: "details", hasNext: true],
+                [data: [name: "foo2", bar: [id: "barId2"]], path: ["foo", 1], label: "details", hasNext: true]
+        ] as Set
+        payloads[3..4].collect { it.path } as Set == [["foo", 0, "bar"], ["foo", 1, "bar"]] as Set
+        payloads[3..4].collect { it.data } as Set == [[name: "bar1"], [name: "bar2"]] as Set
+        payloads[3].hasNext
+        !payloads[4].hasNext
+
+        // a normal execution ignores the directive
+        result.getData() == [foo: [[id: "fooId1", name: "foo1", bar: [id: "barId1", name: "bar1"]],
+                                   [id: "fooId2", name: "foo2", bar: [id: "barId2", name: "bar2"]]]]
+    }
+
+    def "a deferred fragment is delivered once its own fields are resolved"() {
+        def events = Collections.synchronizedList([])
+        def fooData = [id: "fooId1", name: "foo1", bar: [id: "barId1"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Bar  : [baz: { env -> events.add("fetch baz"); [id: "bazId1"] } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: Foo
+        }
+        type Foo {
+            id: ID
+            name: String
+            bar: Bar
+        }
+        type Bar {
+            id: ID
+            baz: Baz
+        }
+        type Baz {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            ... @defer(label: "name") { name }
+            ... @defer(label: "bar") { bar { baz { id } } }
+        }}
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def payloads = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .doOnNext({ payload -> events.add("payload " + payload.getLabel()) })
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block()
+
+        then:
+        events == ["payload null", "payload name", "fetch baz", "payload bar"]
+        payloads == [
+                [data: [foo: [id: "fooId1"]], hasNext: true],
+                [data: [name: "foo1"], path: ["foo"], label: "name", hasNext: true],
+                [data: [bar: [baz: [id: "bazId1"]]], path: ["foo"], label: "bar", hasNext: false]
+        ]
+    }
+
+    def "the if argument of defer is evaluated per execution"() {
+        def fooData = [id: "fooId1", name: "foo1", title: "title1"]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: Foo
+        }
+        type Foo {
+            id: ID
+            name: String
+            title: String
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        query Foo(\$deferName: Boolean!) {foo {
+            id
+            ... @defer(label: "name", if: \$deferName) { name }
+            ... @defer(label: "title", if: false) { title }
+        }}
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def deferred = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().variables([deferName: true]).build())
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block()
+        def notDeferred = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().variables([deferName: false]).build())
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block()
+
+        then:
+        deferred == [
+                [data: [foo: [id: "fooId1", title: "title1"]], hasNext: true],
+                [data: [name: "foo1"], path: ["foo"], label: "name", hasNext: false]
+        ]
+        notDeferred == [
+                [data: [foo: [id: "fooId1", name: "foo1", title: "title1"]], hasNext: false]
+        ]
+    }
+
+    def "a defer with if false is never deferred and the prepared fields are shared"() {
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            ... @defer(if: false) { name }
+        }}
+        """)
+        def variableDocument = graphql.TestUtil.parseQuery("""
+        query Foo(\$defer: Boolean!) {foo {
+            id
+            ... @defer(if: \$defer) { name }
+        }}
+        """)
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: Foo
+        }
+        type Foo {
+            id: ID
+            name: String
+        }
+        """, [:])
+
+        when:
+        def preparedOperation = PreparedOperation.prepare(schema, document, null)
+        def variablePreparedOperation = PreparedOperation.prepare(schema, variableDocument, null)
+
+        then:
+        !preparedOperation.hasDeferDirectives()
+        preparedOperation.getIncrementalBatchKeys([:]).is(preparedOperation.getIncrementalBatchKeys([:]))
+        variablePreparedOperation.hasDeferDirectives()
+        !variablePreparedOperation.getIncrementalBatchKeys([defer: true]).is(variablePreparedOperation.getIncrementalBatchKeys([defer: true]))
+    }
+
+    def "streamed list items after the initial count are delivered as patches"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId3"]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo @stream(initialCount: 1, label: "rest") {
+            id
+        }}
+        """)
+
+        CFExecution execution = new CFExecution()
+
+        when:
+        def payloads = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block()
+
+        then:
+        payloads == [
+                [data: [foo: [[id: "fooId1"]]], hasNext: true],
+                [data: [id: "fooId2"], path: ["foo", 1], label: "rest", hasNext: true],
+                [data: [id: "fooId3"], path: ["foo", 2], label: "rest", hasNext: false]
+        ]
+    }
+
+
+    def "lazy list values are pulled in chunks"() {
+        def requests = Collections.synchronizedList([])
+        def dataFetchers = [
+                Query: [
+                        fromPublisher: { env -> Flux.range(0, 5).map({ [id: "p" + it] }).doOnRequest({ requests.add(it) }) } as DataFetcher,
+                        fromIterator : { env -> [[id: "i0"], [id: "i1"]].iterator() } as DataFetcher,
+                        fromStream   : { env -> [[id: "s0"], [id: "s1"]].stream() } as DataFetcher
+                ]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            fromPublisher: [Foo]
+            fromIterator: [Foo]
+            fromStream: [Foo]
+        }
+        type Foo {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {fromPublisher { id } fromIterator { id } fromStream { id }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution()
+                .listChunkSize(2)
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get()
+
+        then:
+        result.getData() == [
+                fromPublisher: [[id: "p0"], [id: "p1"], [id: "p2"], [id: "p3"], [id: "p4"]],
+                fromIterator : [[id: "i0"], [id: "i1"]],
+                fromStream   : [[id: "s0"], [id: "s1"]]
+        ]
+        requests == [2L, 2L, 2L]
+    }
+
+    def "a streamed lazy list is pulled one chunk per wave"() {
+        def items = (0..<5).collect { [id: "id" + it] }
+        def pulled = new AtomicInteger()
+        def dataFetchers = [
+                Query: [foo: { env ->
+                    new Iterator<Object>() {
+                        int index = 0
+
+                        @Override
+                        boolean hasNext() {
+                            index < items.size()
+                        }
+
+                        @Override
+                        Object next() {
+                            pulled.incrementAndGet()
+                            items[index++]
+                        }
+                    }
+                } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo @stream(initialCount: 1) {
+            id
+        }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution()
+                .listChunkSize(2)
+                .build()
+
+        when:
+        def pulledPerPayload = []
+        def payloads = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .map({ payload -> pulledPerPayload.add(pulled.get()); payload.toSpecification() })
+                .collectList()
+                .block()
+
+        then:
+        payloads == [
+                [data: [foo: [[id: "id0"]]], hasNext: true],
+                [data: [id: "id1"], path: ["foo", 1], hasNext: true],
+                [data: [id: "id2"], path: ["foo", 2], hasNext: true],
+                [data: [id: "id3"], path: ["foo", 3], hasNext: true],
+                [data: [id: "id4"], path: ["foo", 4], hasNext: true],
+                [hasNext: false]
+        ]
+        pulledPerPayload == [1, 3, 3, 5, 5, 5]
+    }
+
+    def "an iterator or stream failing while it is pulled is a field error"() {
+        def levelErrors = Collections.synchronizedList([])
+        def dataFetchers = [
+                Query: [
+                        fromIterator: { env ->
+                            new Iterator<Object>() {
+                                int index = 0
+
+                                @Override
+                                boolean hasNext() {
+                                    true
+                                }
+
+                                @Override
+                                Object next() {
+                                    if (index == 3) {
+                                        throw new RuntimeException("iterator failed")
+                                    }
+                                    [id: "i" + index++]
+                                }
+                            }
+                        } as DataFetcher,
+                        fromStream  : { env ->
+                            Stream.iterate(0, { it + 1 } as UnaryOperator).map({
+                                if (it == 3) {
+                                    throw new RuntimeException("stream failed")
+                                }
+                                [id: "s" + it]
+                            } as Function)
+                        } as DataFetcher
+                ]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            fromIterator: [Foo]
+            fromStream: [Foo]
+        }
+        type Foo {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {fromIterator { id } fromStream { id }}
+        """)
+
+        def instrumentation = new FetchInstrumentation() {
+            @Override
+            FetchInstrumentationContext beginLevel(ExecutionContext executionContext, int level, int nodeCount) {
+                return new FetchInstrumentationContext() {
+                    @Override
+                    void onEnd(long latencyNanos, List<GraphQLError> errors, Throwable exception) {
+                        levelErrors.addAll(errors)
+                    }
+                }
+            }
+        }
+        CFExecution execution = CFExecution.newCFExecution()
+                .listChunkSize(2)
+                .fetchInstrumentation(instrumentation)
+                .build()
+
+        when:
+        def result = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).get(5, TimeUnit.SECONDS)
+
+        then:
+        result.getData() == [fromIterator: null, fromStream: null]
+        levelErrors.size() == 2
+        levelErrors.every { it instanceof ExceptionWhileDataFetching }
+        levelErrors.collect { it.getPath() } as Set == [["fromIterator"], ["fromStream"]] as Set
+        levelErrors.collect { it.getException().getMessage() } as Set == ["iterator failed", "stream failed"] as Set
+    }
+
+    def "a streamed publisher failing after the initial count ends with an error patch"() {
+        def dataFetchers = [
+                Query: [foo: { env ->
+                    Flux.range(0, 5).map({
+                        if (it == 3) {
+                            throw new RuntimeException("publisher failed")
+                        }
+                        [id: "id" + it]
+                    })
+                } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+        }
+        """, dataFetchers)
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo @stream(initialCount: 1) {
+            id
+        }}
+        """)
+
+        CFExecution execution = CFExecution.newCFExecution()
+                .listChunkSize(2)
+                .build()
+
+        when:
+        def payloads = execution.executeIncrementally(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .map({ payload -> payload.toSpecification() })
+                .collectList()
+                .block(Duration.ofSeconds(5))
+
+        then:
+        payloads.size() == 4
+        payloads[0..2] == [
+                [data: [foo: [[id: "id0"]]], hasNext: true],
+                [data: [id: "id1"], path: ["foo", 1], hasNext: true],
+                [data: [id: "id2"], path: ["foo", 2], hasNext: true]
+        ]
+        payloads[3].data == null
+        payloads[3].path == ["foo", 3]
+        payloads[3].errors.size() == 1
+        payloads[3].errors[0].message.contains("publisher failed")
+        !payloads[3].hasNext
+    }
+
 }
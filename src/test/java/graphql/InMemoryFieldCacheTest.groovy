@@ -0,0 +1,91 @@
+package graphql
+
+import graphql.execution.Async
+import graphql.schema.GraphQLDirective
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
+
+import static graphql.schema.GraphQLArgument.newArgument
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition
+
+class InMemoryFieldCacheTest extends Specification {
+
+    def fieldDefinition = newFieldDefinition().name("config").type(Scalars.GraphQLString).build()
+
+    def "concurrent misses share one fetch"() {
+        given:
+        def cache = InMemoryFieldCache.newInMemoryFieldCache().build()
+        def fetch = new CompletableFuture()
+        def fetchCount = 0
+        def fetcher = { fetchCount++; fetch }
+
+        when:
+        def first = cache.get("Query", fieldDefinition, null, [:], Duration.ofMinutes(1), fetcher)
+        def second = cache.get("Query", fieldDefinition, null, [:], Duration.ofMinutes(1), fetcher)
+        fetch.complete("value")
+
+        then:
+        first.get() == "value"
+        second.get() == "value"
+        fetchCount == 1
+        cache.getMissCount() == 1
+        cache.getHitCount() == 1
+    }
+
+    def "values are keyed by source and arguments"() {
+        given:
+        def cache = InMemoryFieldCache.newInMemoryFieldCache().sourceKey({ source -> source.id }).build()
+        def fetchCount = 0
+        def fetcher = { CompletableFuture.completedFuture("value" + (++fetchCount)) }
+
+        when:
+        def a = cache.get("Query", fieldDefinition, [id: 1], [lang: "en"], Duration.ofMinutes(1), fetcher).get()
+        def sameEntity = cache.get("Query", fieldDefinition, [id: 1, other: true], [lang: "en"], Duration.ofMinutes(1), fetcher).get()
+        def otherArguments = cache.get("Query", fieldDefinition, [id: 1], [lang: "de"], Duration.ofMinutes(1), fetcher).get()
+
+        then:
+        a == "value1"
+        sameEntity == "value1"
+        otherArguments == "value2"
+        cache.size() == 2
+    }
+
+    def "expired values and failed fetches are fetched again"() {
+        given:
+        def cache = InMemoryFieldCache.newInMemoryFieldCache().build()
+        def fetchCount = 0
+        def failing = { fetchCount++; Async.exceptionallyCompletedFuture(new RuntimeException("failed")) }
+        def succeeding = { CompletableFuture.completedFuture("value" + (++fetchCount)) }
+
+        when:
+        cache.get("Query", fieldDefinition, null, [:], Duration.ofMinutes(1), failing)
+        def afterFailure = cache.get("Query", fieldDefinition, null, [:], Duration.ofMillis(1), succeeding).get()
+        Thread.sleep(5)
+        def afterExpiry = cache.get("Query", fieldDefinition, null, [:], Duration.ofMillis(1), succeeding).get()
+
+        then:
+        afterFailure == "value2"
+        afterExpiry == "value3"
+        cache.getFailedFetchCount() == 1
+        cache.getMissCount() == 3
+    }
+
+    def "ttl is declared in the builder or with the cached directive"() {
+        given:
+        def cachedDirective = GraphQLDirective.newDirective()
+                .name(InMemoryFieldCache.CACHED_DIRECTIVE)
+                .argument(newArgument().name(InMemoryFieldCache.TTL_MILLIS_ARGUMENT).type(Scalars.GraphQLInt).value(500))
+                .build()
+        def directiveField = newFieldDefinition().name("catalog").type(Scalars.GraphQLString).withDirective(cachedDirective).build()
+        def cache = InMemoryFieldCache.newInMemoryFieldCache()
+                .field("Query", "config", Duration.ofSeconds(5))
+                .build()
+
+        expect:
+        cache.getTtl("Query", fieldDefinition) == Duration.ofSeconds(5)
+        cache.getTtl("Other", fieldDefinition) == null
+        cache.getTtl("Query", directiveField) == Duration.ofMillis(500)
+    }
+}
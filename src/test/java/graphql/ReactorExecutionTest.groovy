@@ -463,4 +463,61 @@ class ReactorExecutionTest extends Specification {
 
     }
 
+    def "batched data fetcher is called once for all sources"() {
+        def fooData = [[id: "fooId1"], [id: "fooId2"], [id: "fooId3"]]
+        def batchSizes = []
+        def barFetcher = new BatchedDataFetcher() {
+            @Override
+            Object get(BatchedDataFetchingEnvironment environment) {
+                batchSizes << environment.size()
+                return environment.getSources().collect { source -> [id: source.id + "-bar"] }
+            }
+        }
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher],
+                Foo  : [bar: barFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: [Foo]
+        }
+        type Foo {
+            id: ID
+            bar: Bar
+        }    
+        type Bar {
+            id: ID
+        }
+        """, dataFetchers)
+
+
+        def document = graphql.TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+            }
+        }}
+        """)
+
+        ExecutionInput executionInput = ExecutionInput.newExecutionInput()
+                .build()
+
+
+        ReactorExecution reactorExecution = new ReactorExecution();
+
+        when:
+        def monoResult = reactorExecution.execute(document, schema, ExecutionId.generate(), executionInput)
+        def result = monoResult.toFuture().get()
+
+
+        then:
+        result.getData() == [foo: [[id: "fooId1", bar: [id: "fooId1-bar"]],
+                                   [id: "fooId2", bar: [id: "fooId2-bar"]],
+                                   [id: "fooId3", bar: [id: "fooId3-bar"]]]]
+        batchSizes == [3]
+
+
+    }
+
 }
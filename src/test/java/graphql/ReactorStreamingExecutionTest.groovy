@@ -1,11 +1,22 @@
 package graphql
 
 import graphql.execution.ExecutionId
+import graphql.old.LeafFrameWindow
 import graphql.old.ReactorStreamingExecution
+import graphql.old.ResultAssembler
+import graphql.old.ResultLeaf
+import graphql.old.StreamingDemand
+import graphql.schema.CoercingParseLiteralException
 import graphql.schema.DataFetcher
+import org.reactivestreams.Subscription
+import reactor.core.publisher.BaseSubscriber
 import spock.lang.Specification
 
+import java.time.Duration
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 import static org.awaitility.Awaitility.await
 
@@ -58,4 +69,171 @@ class ReactorStreamingExecutionTest extends Specification {
         await().until({ result == [foo: fooData] })
 
     }
+
+    def "leaves are grouped into frames by count and size"() {
+        def fooData = [id: "fooId", bar: [[id: "barId1", name: "someBar1"], [id: "barId2", name: "someBar2"]]]
+        def dataFetchers = [
+                Query: [foo: { env -> fooData } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            foo: Foo
+        }
+        type Foo {
+            id: ID
+            bar: [Bar]
+        }
+        type Bar {
+            id: ID
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = TestUtil.parseQuery("""
+        {foo {
+            id
+            bar {
+                id
+                name
+            }
+        }}
+        """)
+
+        ReactorStreamingExecution execution = new ReactorStreamingExecution()
+
+        when:
+        def byCount = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build(),
+                LeafFrameWindow.of(2, 64 * 1024, Duration.ofSeconds(10))).collectList().block()
+        def bySize = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build(),
+                LeafFrameWindow.of(1000, 1, Duration.ofSeconds(10))).collectList().block()
+        def resultAssembler = ResultAssembler.singleThreaded()
+        byCount.each { frame -> resultAssembler.add(frame) }
+
+        then:
+        resultAssembler.getResult() == [foo: fooData]
+        byCount.collect { it.getLeaves().size() } == [2, 2, 1]
+        bySize.collect { it.getLeaves().size() } == [1, 1, 1, 1, 1]
+    }
+
+    def "fetches are only started on demand"() {
+        def items = (0..<100).collect { [id: "item" + it] }
+        def nameCalls = new AtomicInteger()
+        def dataFetchers = [
+                Query: [items: { env -> items } as DataFetcher],
+                Item : [name: { env -> nameCalls.incrementAndGet(); "name-" + env.getSource().id } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            items: [Item]
+        }
+        type Item {
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = TestUtil.parseQuery("{items { name }}")
+
+        ReactorStreamingExecution execution = new ReactorStreamingExecution(StreamingDemand.of(1, 1))
+        def received = Collections.synchronizedList([])
+        def completed = new AtomicBoolean()
+        def subscriber = new BaseSubscriber<ResultLeaf>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1)
+            }
+
+            @Override
+            protected void hookOnNext(ResultLeaf leaf) {
+                received << leaf
+            }
+
+            @Override
+            protected void hookOnComplete() {
+                completed.set(true)
+            }
+        }
+
+        when:
+        execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build()).subscribe(subscriber)
+        def callsAfterFirstRequest = nameCalls.get()
+        subscriber.request(Long.MAX_VALUE)
+
+        then:
+        received.size() >= 1
+        callsAfterFirstRequest <= 3
+        await().until({ completed.get() })
+        received.size() == 100
+        nameCalls.get() == 100
+    }
+
+    def "the concurrent fetches are bounded for the whole stream"() {
+        def items = (0..<20).collect { [id: "item" + it] }
+        def inFlight = new AtomicInteger()
+        def maxInFlight = new AtomicInteger()
+        def slowFetch = { value ->
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), { a, b -> Math.max(a, b) })
+            CompletableFuture.supplyAsync({
+                Thread.sleep(5)
+                inFlight.decrementAndGet()
+                value
+            })
+        }
+        def dataFetchers = [
+                Query: [items: { env -> slowFetch(items) } as DataFetcher],
+                Item : [child: { env -> slowFetch([id: env.getSource().id + "-child"]) } as DataFetcher],
+                Child: [name: { env -> slowFetch("name-" + env.getSource().id) } as DataFetcher]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            items: [Item]
+        }
+        type Item {
+            child: Child
+        }
+        type Child {
+            name: String
+        }
+        """, dataFetchers)
+
+        def document = TestUtil.parseQuery("{items { child { name } }}")
+
+        ReactorStreamingExecution execution = new ReactorStreamingExecution(StreamingDemand.of(2, 4))
+
+        when:
+        def leaves = execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .collectList()
+                .block(Duration.ofSeconds(10))
+
+        then:
+        leaves.size() == 20
+        maxInFlight.get() <= 2
+    }
+
+    def "a fetch failing before it is started doesn't keep its permit"() {
+        def dataFetchers = [
+                Query: [
+                        slow : { env -> CompletableFuture.supplyAsync({ Thread.sleep(20); "slow" }) } as DataFetcher,
+                        count: { env -> env.getArgument("n") } as DataFetcher
+                ]
+        ]
+        def schema = TestUtil.schema("""
+        type Query {
+            slow: String
+            count(n: Int): Int
+        }
+        """, dataFetchers)
+
+        // the argument can't be coerced: the fetch of count throws while the permit of slow is handed over to it
+        def document = TestUtil.parseQuery("""{slow count(n: "notAnInt")}""")
+
+        ReactorStreamingExecution execution = new ReactorStreamingExecution(StreamingDemand.of(1, 1))
+
+        when:
+        execution.execute(document, schema, ExecutionId.generate(), ExecutionInput.newExecutionInput().build())
+                .collectList()
+                .block(Duration.ofSeconds(5))
+
+        then:
+        thrown(CoercingParseLiteralException)
+    }
 }
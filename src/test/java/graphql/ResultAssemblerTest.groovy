@@ -0,0 +1,79 @@
+package graphql
+
+import graphql.old.ResultAssembler
+import graphql.old.ResultLeaf
+import spock.lang.Specification
+
+class ResultAssemblerTest extends Specification {
+
+    def "leaves are assembled in arrival order with lists filled out of order"() {
+        given:
+        def resultAssembler = ResultAssembler.singleThreaded()
+
+        when:
+        resultAssembler.add(leaf(["foo", "id"], "fooId"))
+        resultAssembler.add(leaf(["foo", "bar", 2, "name"], "bar2"))
+        resultAssembler.add(leaf(["foo", "bar", 0, "name"], "bar0"))
+        resultAssembler.add(leaf(["foo", "bar", 1, "name"], null))
+        resultAssembler.add(leaf(["foo", "bar", 0, "id"], "barId0"))
+        resultAssembler.add(leaf(["foo", "tags", 1], "b"))
+        resultAssembler.add(leaf(["foo", "tags", 0], "a"))
+        resultAssembler.add(leaf(["foo", "empty"], null))
+
+        then:
+        def result = resultAssembler.getResult()
+        result == [foo: [id   : "fooId",
+                         bar  : [[name: "bar0", id: "barId0"], [name: null], [name: "bar2"]],
+                         tags : ["a", "b"],
+                         empty: null]]
+        result.foo.keySet() as List == ["id", "bar", "tags", "empty"]
+    }
+
+    def "fields are assembled in selection order when the document is known"() {
+        given:
+        def document = TestUtil.parseQuery("""
+        {foo {
+            id
+            bar { id name }
+            ... on Foo { tags }
+            ...FooEmpty
+        }}
+        fragment FooEmpty on Foo { empty }
+        """)
+        def resultAssembler = ResultAssembler.singleThreaded(document, null)
+
+        when:
+        resultAssembler.add(leaf(["foo", "empty"], null))
+        resultAssembler.add(leaf(["foo", "tags", 0], "a"))
+        resultAssembler.add(leaf(["foo", "bar", 0, "name"], "bar0"))
+        resultAssembler.add(leaf(["foo", "unknown"], "x"))
+        resultAssembler.add(leaf(["foo", "bar", 0, "id"], "barId0"))
+        resultAssembler.add(leaf(["foo", "id"], "fooId"))
+
+        then:
+        def result = resultAssembler.getResult()
+        result == [foo: [id: "fooId", bar: [[id: "barId0", name: "bar0"]], tags: ["a"], empty: null, unknown: "x"]]
+        result.foo.keySet() as List == ["id", "bar", "tags", "empty", "unknown"]
+        result.foo.bar[0].keySet() as List == ["id", "name"]
+    }
+
+    def "a big list is assembled"() {
+        given:
+        def resultAssembler = ResultAssembler.synchronizedAssembler()
+        def leaves = (0..<10000).collect { leaf(["items", it, "id"], it) }
+
+        when:
+        resultAssembler.addAll(leaves)
+
+        then:
+        resultAssembler.getResult().items.size() == 10000
+        resultAssembler.getResult().items[9999] == [id: 9999]
+    }
+
+    ResultLeaf leaf(List<Object> path, Object value) {
+        def leaf = new ResultLeaf()
+        leaf.setExecutionPath(path)
+        leaf.setValue(value)
+        leaf
+    }
+}
@@ -0,0 +1,59 @@
+package graphql
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import graphql.old.ResultLeaf
+import graphql.old.ResultLeafDecoder
+import graphql.old.ResultLeafEncoder
+import spock.lang.Specification
+
+class ResultLeafCodecTest extends Specification {
+
+    def "leaves are decoded across frames"() {
+        given:
+        def encoder = new ResultLeafEncoder()
+        def decoder = new ResultLeafDecoder()
+        def firstFrame = [
+                leaf(["foo", "id"], "fooId"),
+                leaf(["foo", "bar", 0, "name"], "bär"),
+                leaf(["foo", "bar", 0, "count"], -3),
+        ]
+        def secondFrame = [
+                leaf(["foo", "bar", 0, "big"], 12345678901L),
+                leaf(["foo", "bar", 1, "name"], null),
+                leaf(["foo", "bar", 1, "price"], 1.5d),
+                leaf(["foo", "bar", 1, "active"], true),
+                leaf(["foo", "bar", 1, "amount"], new BigDecimal("10.25")),
+        ]
+
+        when:
+        def decodedFirst = decoder.decode(encoder.encode(firstFrame))
+        def decodedSecond = decoder.decode(encoder.encode(secondFrame))
+
+        then:
+        decodedFirst.collect { [it.executionPath, it.value] } == firstFrame.collect { [it.executionPath, it.value] }
+        decodedSecond.collect { [it.executionPath, it.value] } == secondFrame.collect { [it.executionPath, it.value] }
+        decodedSecond[0].value instanceof Long
+        decodedFirst[2].value instanceof Integer
+    }
+
+    def "repeated paths are much smaller than json"() {
+        given:
+        def leaves = (0..<100).collectMany { i ->
+            [leaf(["items", i, "id"], i), leaf(["items", i, "name"], "n" + i)]
+        }
+
+        when:
+        def binary = new ResultLeafEncoder().encode(leaves)
+        def json = new ObjectMapper().writeValueAsBytes(leaves)
+
+        then:
+        binary.length * 4 < json.length
+    }
+
+    ResultLeaf leaf(List<Object> path, Object value) {
+        def leaf = new ResultLeaf()
+        leaf.setExecutionPath(path)
+        leaf.setValue(value)
+        leaf
+    }
+}
@@ -1,8 +1,102 @@
 package graphql.result
 
+import graphql.FetchedValueAnalysis
+import graphql.Scalars
+import graphql.execution.ExecutionPath
+import graphql.execution.ExecutionStepInfo
+import graphql.execution.NonNullableFieldWasNullException
+import graphql.schema.GraphQLList
+import graphql.schema.GraphQLNonNull
+import graphql.schema.GraphQLObjectType
+import graphql.schema.GraphQLOutputType
 import spock.lang.Specification
 
+import static graphql.FetchedValueAnalysis.FetchedValueType.LIST
+import static graphql.FetchedValueAnalysis.FetchedValueType.OBJECT
+import static graphql.FetchedValueAnalysis.FetchedValueType.SCALAR
+import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode
+import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition
+import static graphql.schema.GraphQLObjectType.newObject
+
 class MultiZipperTest extends Specification {
 
+    GraphQLObjectType fooType = newObject()
+            .name("Foo")
+            .field(newFieldDefinition().name("id").type(Scalars.GraphQLString))
+            .build()
+
+    def "toRootNode replaces nodes at different depths"() {
+        given:
+        def list = new ListExecutionResultNode(analysis(LIST, new GraphQLList(fooType)), [unresolved(), unresolved()])
+        def root = new RootExecutionResultNode([foo: unresolved(), list: list])
+        def unresolvedNodes = ResultNodesUtil.getUnresolvedNodes(root)
+
+        def resolvedZippers = unresolvedNodes.getZippers().collect { zipper ->
+            def id = zipper.getBreadcrumbList().collect { it.position.toString() }.reverse().join("/")
+            zipper.withNode(resolved(id))
+        }
+
+        when:
+        def newRoot = unresolvedNodes.withZippers(resolvedZippers).toRootNode()
+
+        then:
+        unresolvedNodes.getZippers().size() == 3
+        newRoot instanceof RootExecutionResultNode
+        ResultNodesUtil.toData(newRoot) == [foo: [id: "foo"], list: [[id: "list/0"], [id: "list/1"]]]
+    }
+
+    def "toRootNode without zippers returns the common root"() {
+        given:
+        def root = new RootExecutionResultNode([foo: resolved("foo")])
+
+        expect:
+        new MultiZipper(root, []).toRootNode() == root
+    }
+
+    def "replacing children updates the null propagation of the parent"() {
+        given:
+        def nullLeaf = new LeafExecutionResultNode(analysis(SCALAR, new GraphQLNonNull(Scalars.GraphQLString)),
+                new NonNullableFieldWasNullException(stepInfo(new GraphQLNonNull(Scalars.GraphQLString)), ExecutionPath.rootPath()))
+        def nonNullList = new ListExecutionResultNode(analysis(LIST, new GraphQLNonNull(new GraphQLList(fooType))), [resolved("0"), resolved("1")])
+
+        when:
+        def withNull = nonNullList.withChild(nullLeaf, ExecutionResultNodePosition.index(1))
+        def withoutNull = withNull.withNewChildren([(ExecutionResultNodePosition.index(1)): resolved("1")])
+
+        then:
+        !nonNullList.hasChildNonNullableException()
+        withNull.hasChildNonNullableException()
+        withNull.getNonNullableFieldWasNullException().is(nullLeaf.getNonNullableFieldWasNullException())
+        !withoutNull.hasChildNonNullableException()
+        withoutNull.getNonNullableFieldWasNullException() == null
+    }
+
+    UnresolvedObjectResultNode unresolved() {
+        new UnresolvedObjectResultNode(analysis(OBJECT, fooType))
+    }
+
+    ObjectExecutionResultNode resolved(String id) {
+        def idAnalysis = FetchedValueAnalysis.newFetchedValueAnalysis(SCALAR)
+                .name("id")
+                .completedValue(id)
+                .executionStepInfo(stepInfo(Scalars.GraphQLString))
+                .build()
+        new ObjectExecutionResultNode(analysis(OBJECT, fooType), [id: new LeafExecutionResultNode(idAnalysis, null)])
+    }
+
+    FetchedValueAnalysis analysis(FetchedValueAnalysis.FetchedValueType valueType, GraphQLOutputType type) {
+        FetchedValueAnalysis.newFetchedValueAnalysis(valueType)
+                .name("foo")
+                .executionStepInfo(stepInfo(type))
+                .build()
+    }
+
+    ExecutionStepInfo stepInfo(GraphQLOutputType type) {
+        ExecutionStepInfo.newExecutionStepInfo()
+                .type(type)
+                .path(ExecutionPath.rootPath())
+                .build()
+    }
 
 }
@@ -0,0 +1,81 @@
+package graphql.result
+
+import graphql.FetchedValueAnalysis
+import graphql.Scalars
+import graphql.execution.ExecutionPath
+import graphql.execution.ExecutionStepInfo
+import graphql.schema.GraphQLList
+import graphql.schema.GraphQLObjectType
+import graphql.schema.GraphQLOutputType
+import spock.lang.Specification
+
+import static graphql.FetchedValueAnalysis.FetchedValueType.LIST
+import static graphql.FetchedValueAnalysis.FetchedValueType.OBJECT
+import static graphql.FetchedValueAnalysis.FetchedValueType.SCALAR
+import static graphql.result.ObjectExecutionResultNode.RootExecutionResultNode
+import static graphql.result.ObjectExecutionResultNode.UnresolvedObjectResultNode
+import static graphql.schema.GraphQLFieldDefinition.newFieldDefinition
+import static graphql.schema.GraphQLObjectType.newObject
+
+class ResultArenaTest extends Specification {
+
+    GraphQLObjectType fooType = newObject()
+            .name("Foo")
+            .field(newFieldDefinition().name("id").type(Scalars.GraphQLString))
+            .build()
+
+    def "freeze replaces the filled nodes at all levels"() {
+        given:
+        def foo = unresolved()
+        def listElement0 = unresolved()
+        def listElement1 = unresolved()
+        def list = new ListExecutionResultNode(analysis(LIST, new GraphQLList(fooType)), [listElement0, listElement1])
+        def root = new RootExecutionResultNode([foo: foo, list: list])
+        def arena = new ResultArena()
+
+        def unresolvedNodes = []
+        ResultArena.collectUnresolvedNodes(root.getChildren(), unresolvedNodes)
+
+        def nestedFoo = unresolved()
+        arena.fill(foo, [id: leaf("foo"), foo: nestedFoo])
+        arena.fill(nestedFoo, [id: leaf("nested")])
+        arena.fill(listElement0, [id: leaf("list0")])
+
+        when:
+        def frozenRoot = arena.freeze(root)
+
+        then:
+        unresolvedNodes == [foo, listElement0, listElement1]
+        frozenRoot.getChildrenMap().list.getChildren()[1].is(listElement1)
+        ResultNodesUtil.toData(frozenRoot.getChildrenMap().foo) == [id: "foo", foo: [id: "nested"]]
+        ResultNodesUtil.toData(frozenRoot.getChildrenMap().list.getChildren()[0]) == [id: "list0"]
+    }
+
+    UnresolvedObjectResultNode unresolved() {
+        new UnresolvedObjectResultNode(analysis(OBJECT, fooType))
+    }
+
+    LeafExecutionResultNode leaf(String value) {
+        def leafAnalysis = FetchedValueAnalysis.newFetchedValueAnalysis(SCALAR)
+                .name("id")
+                .completedValue(value)
+                .executionStepInfo(stepInfo(Scalars.GraphQLString))
+                .build()
+        new LeafExecutionResultNode(leafAnalysis, null)
+    }
+
+    FetchedValueAnalysis analysis(FetchedValueAnalysis.FetchedValueType valueType, GraphQLOutputType type) {
+        FetchedValueAnalysis.newFetchedValueAnalysis(valueType)
+                .name("foo")
+                .executionStepInfo(stepInfo(type))
+                .build()
+    }
+
+    ExecutionStepInfo stepInfo(GraphQLOutputType type) {
+        ExecutionStepInfo.newExecutionStepInfo()
+                .type(type)
+                .path(ExecutionPath.rootPath())
+                .build()
+    }
+
+}